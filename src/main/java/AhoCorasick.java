@@ -0,0 +1,149 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Finds several literal texts in one pass over a text, with an Aho-Corasick automaton compiled into a transitions table,
+ * so each char of the text is read once whatever the count of the literals.
+ */
+class AhoCorasick {
+    private static final int BYTES_COUNT = 256;
+
+    // the index of each char in the alphabet of the literals, 0 for the chars which are not in any literal
+    private final char[] charsIndexes = new char[Character.MAX_VALUE + 1];
+    private final int alphabetSize;
+    // the next state for each state and char index, the failure transitions included
+    private final int[] transitions;
+    // the values of the literals found when reaching each state, null if there isn't any
+    private final int[][] outputs;
+
+    /**
+     * @param literals the literal texts to find, not empty
+     * @param values   the value set by find() for each literal, several literals may have the same value
+     */
+    AhoCorasick(List<String> literals, List<Integer> values) {
+        int alphabetCount = 1;
+        int maxStatesCount = 1;
+        for (String literal : literals) {
+            for (int i = 0; i < literal.length(); i++) {
+                if (charsIndexes[literal.charAt(i)] == 0) {
+                    charsIndexes[literal.charAt(i)] = (char) alphabetCount++;
+                }
+            }
+            maxStatesCount += literal.length();
+        }
+        this.alphabetSize = alphabetCount;
+        int[] trie = new int[maxStatesCount * alphabetSize];
+        Arrays.fill(trie, -1);
+        List<Set<Integer>> statesValues = new ArrayList<>();
+        statesValues.add(new LinkedHashSet<>());
+        for (int i = 0; i < literals.size(); i++) {
+            int state = 0;
+            for (char c : literals.get(i).toCharArray()) {
+                int transition = state * alphabetSize + charsIndexes[c];
+                if (trie[transition] == -1) {
+                    trie[transition] = statesValues.size();
+                    statesValues.add(new LinkedHashSet<>());
+                }
+                state = trie[transition];
+            }
+            statesValues.get(state).add(values.get(i));
+        }
+        // the missing transitions go where the longest suffix of the state text which is also a prefix of a literal goes,
+        // the states are visited breadth first, so the shorter suffixes are complete when a state is visited
+        int[] failures = new int[statesValues.size()];
+        Queue<Integer> states = new ArrayDeque<>();
+        for (int c = 0; c < alphabetSize; c++) {
+            if (trie[c] == -1) {
+                trie[c] = 0;
+            } else {
+                states.add(trie[c]);
+            }
+        }
+        while (!states.isEmpty()) {
+            int state = states.poll();
+            statesValues.get(state).addAll(statesValues.get(failures[state]));
+            for (int c = 0; c < alphabetSize; c++) {
+                int transition = state * alphabetSize + c;
+                int failureTransition = trie[failures[state] * alphabetSize + c];
+                if (trie[transition] == -1) {
+                    trie[transition] = failureTransition;
+                } else {
+                    failures[trie[transition]] = failureTransition;
+                    states.add(trie[transition]);
+                }
+            }
+        }
+        this.transitions = Arrays.copyOf(trie, statesValues.size() * alphabetSize);
+        this.outputs = new int[statesValues.size()][];
+        for (int state = 0; state < statesValues.size(); state++) {
+            if (!statesValues.get(state).isEmpty()) {
+                outputs[state] = statesValues.get(state).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    /**
+     * Set in @found the values of the literals found in @text.
+     */
+    void find(CharSequence text, BitSet found) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = nextState(state, text.charAt(i));
+            if (outputs[state] != null) {
+                for (int value : outputs[state]) {
+                    found.set(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the state reached from @state with the next char @c of the text, the text starts from the state 0
+     */
+    int nextState(int state, char c) {
+        return transitions[state * alphabetSize + charsIndexes[c]];
+    }
+
+    /**
+     * @return the values of the literals ending at the char which reached @state, or null if there isn't any
+     */
+    int[] getValues(int state) {
+        return outputs[state];
+    }
+
+    /**
+     * @return the transitions for the bytes of a text in an ASCII compatible encoding, where the bytes of the other chars
+     * are not ASCII bytes. The state reached from a state with a byte b is at the index state + (b &amp; 0xFF), starting from 0.
+     * The transitions to a state where literals end are negative and the state reached is their complement, see getBytesValues().
+     * The end of line bytes don't change the state, so the literals are found in the text without the end of lines.
+     */
+    int[] getBytesTransitions() {
+        int[] bytesTransitions = new int[outputs.length * BYTES_COUNT];
+        for (int state = 0; state < outputs.length; state++) {
+            for (int b = 0; b < BYTES_COUNT; b++) {
+                int next = nextState(state, (char) b);
+                int bytesState = next * BYTES_COUNT;
+                if (b == '\n' || b == '\r') {
+                    bytesState = state * BYTES_COUNT;
+                } else if (outputs[next] != null) {
+                    bytesState = ~bytesState;
+                }
+                bytesTransitions[state * BYTES_COUNT + b] = bytesState;
+            }
+        }
+        return bytesTransitions;
+    }
+
+    /**
+     * @return the values of the literals ending at the byte which reached @bytesState of the getBytesTransitions(), or null if there isn't any
+     */
+    int[] getBytesValues(int bytesState) {
+        return outputs[bytesState / BYTES_COUNT];
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.xml.sax.SAXException;
+
+/**
+ * The CPU stage of the node processing: parses a JUnit report already downloaded by a JenkinsNodeArtifactsFilter I/O task,
+ * or matches the failures of a report already parsed by a previous run, see ParsedJUnitReport.
+ * The @searchedText is searched while the artifacts are downloaded, see TextSearch.
+ */
+class ArtifactParser implements Callable<ArtifactParser> {
+
+    final ToolArgs toolArgs;
+    final String buildNumber;
+    final String nodeUrl;
+    final String artifactRelativePath;
+    private String artifactFileContent;
+    private ParsedJUnitReport parsedReport;
+    // the version of the artifact content the parsed report is saved for in the disk cache, null if it is not saved
+    private final String cachedReportVersion;
+    List<String> matchedFailedTests = new ArrayList<>();
+    ArrayListValuedHashMap<String, TestFailure> testsFailures = new ArrayListValuedHashMap<>();
+    ArrayListValuedHashMap<String, TestStatus> testsStatus = new ArrayListValuedHashMap<>();
+    // true if the search of the failures messages spent its time budget, see RegexBudget
+    boolean timedOut;
+
+    ArtifactParser(ToolArgs toolArgs, String buildNumber, String nodeUrl, String artifactRelativePath, String artifactFileContent, String cachedReportVersion) {
+        this.toolArgs = toolArgs;
+        this.buildNumber = buildNumber;
+        this.nodeUrl = nodeUrl;
+        this.artifactRelativePath = artifactRelativePath;
+        this.artifactFileContent = artifactFileContent;
+        this.cachedReportVersion = cachedReportVersion;
+    }
+
+    ArtifactParser(ToolArgs toolArgs, String buildNumber, String nodeUrl, String artifactRelativePath, ParsedJUnitReport parsedReport) {
+        this.toolArgs = toolArgs;
+        this.buildNumber = buildNumber;
+        this.nodeUrl = nodeUrl;
+        this.artifactRelativePath = artifactRelativePath;
+        this.parsedReport = parsedReport;
+        this.cachedReportVersion = null;
+    }
+
+    /**
+     * @see java.util.concurrent.Callable#call()
+     */
+    @Override
+    public ArtifactParser call() {
+        AtomicLong previousBudget = RegexBudget.start(toolArgs.regexTimeoutSeconds);
+        try {
+            parseArtifact();
+        } catch (RegexBudget.BudgetExceededException e) {
+            System.err.println("Got timeout when searching the failures of artifact: build: " + buildNumber + " node: " + nodeUrl + " artifact: " + artifactRelativePath + ": " + e.getMessage());
+            timedOut = true;
+        } catch (IOException | ParserConfigurationException | SAXException | XMLStreamException e) {
+            String errorLog = "Exception when parsing artifact: build: " + buildNumber + " node: " + nodeUrl + " artifact: " + artifactRelativePath;
+            System.err.println(errorLog + e.getLocalizedMessage());
+            throw new RuntimeException(errorLog, e);
+        } finally {
+            // release the content as soon as it was parsed, the results may be kept for longer
+            artifactFileContent = null;
+            parsedReport = null;
+            RegexBudget.set(previousBudget);
+        }
+        return this;
+    }
+
+    private void parseArtifact() throws IOException, ParserConfigurationException, SAXException, XMLStreamException {
+        if (parsedReport == null) {
+            // the cached report has the failures to compare, as the next runs may group the failures
+            boolean readsTexts = toolArgs.groupTestsFailures || toolArgs.showTestsDifferences || cachedReportVersion != null;
+            parsedReport = Main.parseJUnitReport(artifactFileContent, readsTexts, toolArgs);
+            artifactFileContent = null;
+            if (cachedReportVersion != null) {
+                try {
+                    parsedReport.putCached(toolArgs.diskResponseCache, buildNumber, nodeUrl, artifactRelativePath, cachedReportVersion);
+                } catch (IOException e) {
+                    System.err.println("Got exception when caching the parsed JUnit report: build: " + buildNumber + " node: " + nodeUrl + " artifact: " + artifactRelativePath + ": " + e.toString());
+                }
+            }
+        }
+        FailuresMatchResult failuresMatchResult = Main.matchJUnitReportFailures(parsedReport, buildNumber, nodeUrl, toolArgs);
+        matchedFailedTests.addAll(failuresMatchResult.matchedFailedTests);
+        testsFailures.putAll(failuresMatchResult.testsFailures);
+        testsStatus.putAll(failuresMatchResult.testsStatus);
+    }
+
+    /**
+     * Create the executor for the parsing tasks. The queue of the downloaded artifacts waiting to be parsed is bounded,
+     * so the I/O threads block when submitting instead of keeping more artifacts contents in memory.
+     *
+     * @param threadPoolSize the parsing threads count
+     * @param queueSize      the maximum count of the artifacts waiting to be parsed
+     */
+    static ExecutorService newParserExecutorService(int threadPoolSize, int queueSize) {
+        return new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), (runnable, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("The artifacts parser executor was shut down.");
+            }
+            try {
+                executor.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted when waiting to submit an artifact for parsing.", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,157 @@
+import com.jayway.jsonpath.JsonPath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The job builds, parsed once from the job API response and indexed by the build number.
+ * The builds keep the job response order, which is from the newest to the oldest build.
+ */
+class BuildCatalog {
+    static final long NO_TIMESTAMP = -1;
+    private static final String BUILDS_JSON_PATH = "$.builds[*]";
+
+    private final int[] numbers;
+    private final String[] urls;
+    private final long[] timestamps;
+    private final List<Map<String, String>> params;
+    // the builds numbers sorted ascending and their index in the arrays above, for the lookup by build number
+    private final int[] sortedNumbers;
+    private final int[] sortedIndexes;
+
+    BuildCatalog(String jobResponse) {
+        List<Map<String, Object>> builds = JsonPath.read(jobResponse, BUILDS_JSON_PATH);
+        int size = builds.size();
+        numbers = new int[size];
+        urls = new String[size];
+        timestamps = new long[size];
+        params = new ArrayList<>(size);
+        long[] sortKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> build = builds.get(i);
+            numbers[i] = ((Number) build.get("number")).intValue();
+            urls[i] = (String) build.get("url");
+            Object timestamp = build.get("timestamp");
+            timestamps[i] = timestamp == null ? NO_TIMESTAMP : ((Number) timestamp).longValue();
+            params.add(parseParams(build.get("actions")));
+            // the build number in the high bits and the index in the low bits, so sorting them sorts also the indexes
+            sortKeys[i] = ((long) numbers[i] << 32) | i;
+        }
+        Arrays.sort(sortKeys);
+        sortedNumbers = new int[size];
+        sortedIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedNumbers[i] = (int) (sortKeys[i] >> 32);
+            sortedIndexes[i] = (int) sortKeys[i];
+        }
+    }
+
+    /**
+     * @return the build parameters name -> value from the build @actions
+     */
+    static Map<String, String> parseParams(Object actions) {
+        if (!(actions instanceof List)) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> buildParams = new HashMap<>();
+        for (Object action : (List<?>) actions) {
+            Object actionParams = action instanceof Map ? ((Map<?, ?>) action).get("parameters") : null;
+            if (!(actionParams instanceof List)) {
+                continue;
+            }
+            for (Object param : (List<?>) actionParams) {
+                if (param instanceof Map && ((Map<?, ?>) param).get("name") != null) {
+                    Object value = ((Map<?, ?>) param).get("value");
+                    // the boolean and number parameters values are compared as strings
+                    buildParams.put(String.valueOf(((Map<?, ?>) param).get("name")), value == null ? null : String.valueOf(value));
+                }
+            }
+        }
+        return buildParams;
+    }
+
+    /**
+     * Set the timestamp and the parameters of a build from its own API response,
+     * for the case when the job response doesn't contain them.
+     */
+    void setDetails(int buildNumber, String buildResponse) {
+        int index = indexOf(buildNumber);
+        if (index < 0) {
+            return;
+        }
+        Map<String, Object> build = JsonPath.read(buildResponse, "$");
+        Object timestamp = build.get("timestamp");
+        timestamps[index] = timestamp == null ? NO_TIMESTAMP : ((Number) timestamp).longValue();
+        params.set(index, parseParams(build.get("actions")));
+    }
+
+    private int indexOf(int buildNumber) {
+        int sortedIndex = Arrays.binarySearch(sortedNumbers, buildNumber);
+        return sortedIndex < 0 ? -1 : sortedIndexes[sortedIndex];
+    }
+
+    int size() {
+        return numbers.length;
+    }
+
+    /**
+     * @return the builds numbers from the newest to the oldest build
+     */
+    List<Integer> getBuildsNumbers() {
+        List<Integer> buildsNumbers = new ArrayList<>(numbers.length);
+        for (int number : numbers) {
+            buildsNumbers.add(number);
+        }
+        return buildsNumbers;
+    }
+
+    /**
+     * @return the builds numbers from the newest to the oldest build, sorted by the build number
+     * in case the job response doesn't keep this order
+     */
+    List<Integer> getBuildsNumbersDescending() {
+        List<Integer> buildsNumbers = new ArrayList<>(sortedNumbers.length);
+        for (int i = sortedNumbers.length - 1; i >= 0; i--) {
+            buildsNumbers.add(sortedNumbers[i]);
+        }
+        return buildsNumbers;
+    }
+
+    /**
+     * @return true if the build timestamp and parameters are known, from the job response or from setDetails()
+     */
+    boolean hasDetails(int buildNumber) {
+        return getTimestamp(buildNumber) != NO_TIMESTAMP;
+    }
+
+    boolean contains(int buildNumber) {
+        return indexOf(buildNumber) >= 0;
+    }
+
+    /**
+     * @return the build URL or null if the build is not in the job response
+     */
+    String getUrl(int buildNumber) {
+        int index = indexOf(buildNumber);
+        return index < 0 ? null : urls[index];
+    }
+
+    /**
+     * @return the build timestamp or NO_TIMESTAMP if it is not in the job response
+     */
+    long getTimestamp(int buildNumber) {
+        int index = indexOf(buildNumber);
+        return index < 0 ? NO_TIMESTAMP : timestamps[index];
+    }
+
+    /**
+     * @return the build parameters name -> value
+     */
+    Map<String, String> getParams(int buildNumber) {
+        int index = indexOf(buildNumber);
+        return index < 0 ? Collections.emptyMap() : params.get(index);
+    }
+}
@@ -0,0 +1,104 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Finds several ASCII literals in the bytes of a text, with the Horspool algorithm for a set of literals:
+ * the shifts are computed for the first minLength bytes of all the literals, so most of the bytes are skipped
+ * when the literals are long, instead of reading each byte like the AhoCorasick automaton.
+ */
+class BytesLiteralsSearch {
+    private static final int BYTES_COUNT = 256;
+
+    private final byte[][] literals;
+    private final int[] values;
+    private final int minLength;
+    private final int[] shifts = new int[BYTES_COUNT];
+    // the indexes of the literals with each byte at minLength - 1, null if there isn't any
+    private final int[][] candidates = new int[BYTES_COUNT][];
+
+    /**
+     * @param literals the ASCII literal texts to find, not empty
+     * @param values   the value set by find() for each literal, several literals may have the same value
+     */
+    BytesLiteralsSearch(List<String> literals, List<Integer> values) {
+        this.literals = new byte[literals.size()][];
+        this.values = new int[literals.size()];
+        int minLength = Integer.MAX_VALUE;
+        for (int i = 0; i < literals.size(); i++) {
+            this.literals[i] = literals.get(i).getBytes(StandardCharsets.US_ASCII);
+            this.values[i] = values.get(i);
+            minLength = Math.min(minLength, this.literals[i].length);
+        }
+        this.minLength = minLength;
+        Arrays.fill(shifts, minLength);
+        List<List<Integer>> lastBytesLiterals = new ArrayList<>();
+        for (int b = 0; b < BYTES_COUNT; b++) {
+            lastBytesLiterals.add(new ArrayList<>());
+        }
+        for (int i = 0; i < this.literals.length; i++) {
+            for (int j = 0; j < minLength - 1; j++) {
+                int b = this.literals[i][j] & 0xFF;
+                shifts[b] = Math.min(shifts[b], minLength - 1 - j);
+            }
+            lastBytesLiterals.get(this.literals[i][minLength - 1] & 0xFF).add(i);
+        }
+        for (int b = 0; b < BYTES_COUNT; b++) {
+            if (!lastBytesLiterals.get(b).isEmpty()) {
+                candidates[b] = lastBytesLiterals.get(b).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first literal found in @bytes starting from @fromIndex and before @toIndex, or -1 if there isn't any.
+     * The values of the literals found at this index are set in @found.
+     */
+    int find(ByteBuffer bytes, int fromIndex, int toIndex, BitSet found) {
+        int lastIndex = minLength - 1;
+        int position = fromIndex;
+        while (position < toIndex && position + lastIndex < bytes.limit()) {
+            int b = bytes.get(position + lastIndex) & 0xFF;
+            if (candidates[b] != null) {
+                boolean matched = false;
+                for (int i : candidates[b]) {
+                    if (matchesAt(bytes, position, literals[i])) {
+                        found.set(values[i]);
+                        matched = true;
+                    }
+                }
+                if (matched) {
+                    return position;
+                }
+            }
+            position += shifts[b];
+        }
+        return -1;
+    }
+
+    /**
+     * @return the length of the longest literal
+     */
+    int getMaxLength() {
+        int maxLength = 0;
+        for (byte[] literal : literals) {
+            maxLength = Math.max(maxLength, literal.length);
+        }
+        return maxLength;
+    }
+
+    private static boolean matchesAt(ByteBuffer bytes, int position, byte[] literal) {
+        if (position + literal.length > bytes.limit()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length; i++) {
+            if (bytes.get(position + i) != literal[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Asks for gzip or deflate compressed responses and decompresses them while they are read, counting the bytes received
+ * from the server and the decompressed bytes, see getSummary().
+ * It replaces the HttpClient content compression, which doesn't expose the compressed size.
+ */
+class ContentEncodingInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+    private static final String ACCEPTED_ENCODINGS = "gzip,deflate";
+
+    private static final AtomicLong wireBytes = new AtomicLong();
+    private static final AtomicLong decodedBytes = new AtomicLong();
+    private static final AtomicLong compressedResponses = new AtomicLong();
+    private static final AtomicLong responses = new AtomicLong();
+
+    /**
+     * @see org.apache.http.HttpRequestInterceptor#process(org.apache.http.HttpRequest, org.apache.http.protocol.HttpContext)
+     */
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+    }
+
+    /**
+     * @see org.apache.http.HttpResponseInterceptor#process(org.apache.http.HttpResponse, org.apache.http.protocol.HttpContext)
+     */
+    @Override
+    public void process(HttpResponse response, HttpContext context) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null || entity.getContentLength() == 0) {
+            return;
+        }
+        responses.incrementAndGet();
+        HttpEntity wireEntity = new CountingEntity(entity, wireBytes);
+        Header contentEncoding = entity.getContentEncoding();
+        String encoding = null;
+        if (contentEncoding != null) {
+            for (HeaderElement element : contentEncoding.getElements()) {
+                encoding = element.getName().toLowerCase(Locale.ENGLISH);
+            }
+        }
+        if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+            setDecodedEntity(response, new GzipDecompressingEntity(wireEntity));
+        } else if ("deflate".equals(encoding)) {
+            setDecodedEntity(response, new DeflateDecompressingEntity(wireEntity));
+        } else {
+            // not compressed, the decoded bytes are the received bytes
+            response.setEntity(new CountingEntity(wireEntity, decodedBytes));
+        }
+    }
+
+    private static void setDecodedEntity(HttpResponse response, HttpEntity decompressingEntity) {
+        compressedResponses.incrementAndGet();
+        response.setEntity(new CountingEntity(decompressingEntity, decodedBytes));
+        // the headers describe the compressed content
+        response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+        response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+        response.removeHeaders(HttpHeaders.CONTENT_MD5);
+    }
+
+    /**
+     * @return the received and decompressed bytes counts of the responses read until now
+     */
+    static String getSummary() {
+        long wire = wireBytes.get();
+        long decoded = decodedBytes.get();
+        String savedPercent = decoded == 0 ? "0" : String.format(Locale.ENGLISH, "%.1f", 100.0 * (decoded - wire) / decoded);
+        return "HTTP transfer: " + compressedResponses.get() + " of " + responses.get() + " responses compressed, " + wire + " bytes received, "
+                + decoded + " bytes decoded (" + savedPercent + "% saved)";
+    }
+
+    /**
+     * An entity adding the count of the bytes read from its content to a counter.
+     */
+    private static class CountingEntity extends HttpEntityWrapper {
+        private final AtomicLong counter;
+
+        CountingEntity(HttpEntity wrappedEntity, AtomicLong counter) {
+            super(wrappedEntity);
+            this.counter = counter;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new ProxyInputStream(super.getContent()) {
+                @Override
+                protected void afterRead(int n) {
+                    if (n > 0) {
+                        counter.addAndGet(n);
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The artifacts of the finished Jenkins builds, saved on disk between runs. The artifacts of a finished build never change,
+ * so a cached artifact is used without asking Jenkins again. The artifacts of the running builds are not cached.
+ * The files are named by the hash of the build number and the normalized artifact URL and are written to a temporary file
+ * which is moved in place only when complete. When the cache grows over its maximum size the least recently used files are removed.
+ * Other results of the finished builds, like the parsed JUnit reports, are saved as entries named by the hash of their key.
+ */
+class DiskResponseCache {
+    static final long DEFAULT_MAX_SIZE_MB = 1024;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final File cacheDir;
+    private final long maxSize;
+    // the cached files names -> sizes, from the least to the most recently used file
+    private final LinkedHashMap<String, Long> files = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    DiskResponseCache(File cacheDir, long maxSizeMB) {
+        this.cacheDir = cacheDir;
+        this.maxSize = maxSizeMB * 1024 * 1024;
+        cacheDir.mkdirs();
+        File[] cachedFiles = cacheDir.listFiles();
+        if (cachedFiles == null) {
+            return;
+        }
+        // the last modified time of a file is updated when it is used, so it is the LRU order of the previous runs
+        Arrays.sort(cachedFiles, Comparator.comparingLong(File::lastModified));
+        for (File cachedFile : cachedFiles) {
+            if (cachedFile.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                // left by an interrupted run
+                FileUtils.deleteQuietly(cachedFile);
+                continue;
+            }
+            files.put(cachedFile.getName(), cachedFile.length());
+            size += cachedFile.length();
+        }
+    }
+
+    /**
+     * @return the cached artifact file for @artifactUrl of @buildNumber, or null if it is not cached
+     */
+    File get(String artifactUrl, String buildNumber) {
+        return getEntry(getArtifactKey(artifactUrl, buildNumber));
+    }
+
+    /**
+     * @return the cached file saved with @key, or null if it is not cached
+     */
+    File getEntry(String key) {
+        String fileName = getFileName(key);
+        synchronized (this) {
+            if (files.get(fileName) == null) {
+                return null;
+            }
+        }
+        File cachedFile = new File(cacheDir, fileName);
+        if (!cachedFile.isFile()) {
+            synchronized (this) {
+                Long removedSize = files.remove(fileName);
+                size -= removedSize == null ? 0 : removedSize;
+            }
+            return null;
+        }
+        cachedFile.setLastModified(System.currentTimeMillis());
+        return cachedFile;
+    }
+
+    /**
+     * Remove the cached artifact file for @artifactUrl of @buildNumber, e.g. if it can't be read
+     */
+    void remove(String artifactUrl, String buildNumber) {
+        removeEntry(getArtifactKey(artifactUrl, buildNumber));
+    }
+
+    /**
+     * Remove the cached file saved with @key
+     */
+    void removeEntry(String key) {
+        String fileName = getFileName(key);
+        synchronized (this) {
+            Long removedSize = files.remove(fileName);
+            size -= removedSize == null ? 0 : removedSize;
+            FileUtils.deleteQuietly(new File(cacheDir, fileName));
+        }
+    }
+
+    /**
+     * Save the content read from @artifactReader as the artifact @artifactUrl of @buildNumber.
+     *
+     * @return the cached artifact file
+     */
+    File put(String artifactUrl, String buildNumber, Reader artifactReader) throws IOException {
+        return putEntry(getArtifactKey(artifactUrl, buildNumber), outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            IOUtils.copy(artifactReader, writer);
+            writer.flush();
+        });
+    }
+
+    /**
+     * Save @content with @key, the entries are removed with the artifacts when the cache is over its maximum size.
+     *
+     * @return the cached file
+     */
+    File putEntry(String key, byte[] content) throws IOException {
+        return putEntry(key, outputStream -> outputStream.write(content));
+    }
+
+    private File putEntry(String key, EntryWriter entryWriter) throws IOException {
+        String fileName = getFileName(key);
+        File tempFile = File.createTempFile(fileName, TEMP_FILE_SUFFIX, cacheDir);
+        File cachedFile = new File(cacheDir, fileName);
+        try {
+            OutputStream outputStream = new FileOutputStream(tempFile);
+            try {
+                entryWriter.write(outputStream);
+            } finally {
+                IOUtils.closeQuietly(outputStream);
+            }
+            try {
+                Files.move(tempFile.toPath(), cachedFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), cachedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+        synchronized (this) {
+            Long previousSize = files.put(fileName, cachedFile.length());
+            size += cachedFile.length() - (previousSize == null ? 0 : previousSize);
+            evict(fileName);
+        }
+        return cachedFile;
+    }
+
+    /**
+     * Remove the least recently used files until the cache size is under the maximum size, keeping @keptFileName.
+     */
+    private void evict(String keptFileName) {
+        Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> file = iterator.next();
+            if (file.getKey().equals(keptFileName)) {
+                continue;
+            }
+            FileUtils.deleteQuietly(new File(cacheDir, file.getKey()));
+            size -= file.getValue();
+            iterator.remove();
+        }
+    }
+
+    private static String getArtifactKey(String artifactUrl, String buildNumber) {
+        return buildNumber.concat(" ").concat(UrlResponseCache.normalizeUrl(artifactUrl));
+    }
+
+    private static String getFileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            return Hex.encodeHexString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Writes the content of a cached file.
+     */
+    private interface EntryWriter {
+        void write(OutputStream outputStream) throws IOException;
+    }
+}
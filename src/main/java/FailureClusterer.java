@@ -0,0 +1,85 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+
+/**
+ * Groups the tests failures whose failures to compare are within the @diffThreshold percent Levenshtein distance.
+ * Each failure is compared only with the first failure of each group, its representative, in the order the groups were created,
+ * and it joins the first group it is equal to, or it starts a new group. The comparisons are reduced in two stages:
+ * - the failures equal to a failure already grouped join its group without any comparison, as they would be compared
+ * with the same representatives, the groups created after it being compared last.
+ * - the representatives whose length differs too much are not compared, as the Levenshtein distance is at least the length difference.
+ */
+class FailureClusterer {
+    private final Double diffThreshold;
+    // the groups keys in the order they were created, and their representatives by their length
+    private final List<String> groupsKeys = new ArrayList<>();
+    private final TreeMap<Integer, List<Integer>> groupsByRepresentativeLength = new TreeMap<>();
+    private final List<String> representatives = new ArrayList<>();
+    // the group index of each failure to compare already grouped
+    private final Map<String, Integer> groupsByFailure = new HashMap<>();
+    private final ArrayListValuedHashMap<String, TestFailure> groupedFailures = new ArrayListValuedHashMap<>();
+
+    private FailureClusterer(Double diffThreshold) {
+        this.diffThreshold = diffThreshold;
+    }
+
+    /**
+     * @param failures      the tests failures by their test url, grouped in the order of their entries
+     * @param diffThreshold the maximum distance percent between the failures of a group
+     * @return the failures by the key of their group, which is the key of the first failure of the group
+     */
+    static MultiValuedMap<String, TestFailure> cluster(MultiValuedMap<String, TestFailure> failures, Double diffThreshold) {
+        FailureClusterer failureClusterer = new FailureClusterer(diffThreshold);
+        for (Map.Entry<String, TestFailure> failure : failures.entries()) {
+            failureClusterer.add(failure.getKey(), failure.getValue());
+        }
+        return failureClusterer.groupedFailures;
+    }
+
+    private void add(String failureKey, TestFailure failure) {
+        String failureToCompare = failure.failureToCompare;
+        Integer groupIndex = groupsByFailure.get(failureToCompare);
+        if (groupIndex == null) {
+            groupIndex = findGroup(failureToCompare);
+        }
+        if (groupIndex == null) {
+            groupIndex = groupsKeys.size();
+            groupsKeys.add(failureKey);
+            representatives.add(failureToCompare);
+            groupsByRepresentativeLength.computeIfAbsent(failureToCompare.length(), length -> new ArrayList<>()).add(groupIndex);
+        }
+        // with a negative threshold even the same failures are not equal, see Main.failuresAreEqual()
+        if (diffThreshold >= 0 || failureToCompare.isEmpty()) {
+            groupsByFailure.put(failureToCompare, groupIndex);
+        }
+        groupedFailures.put(groupsKeys.get(groupIndex), failure);
+    }
+
+    /**
+     * @return the index of the first group whose representative is equal to @failureToCompare, or null if there isn't one
+     */
+    private Integer findGroup(String failureToCompare) {
+        int length = failureToCompare.length();
+        // the lengths of the representatives which may be equal: |length - representativeLength| * 100 <= diffThreshold * max(length, representativeLength),
+        // rounded outwards, the representatives in the range are still compared
+        int minLength = diffThreshold < 0 ? length : (int) Math.max(0, Math.floor(length * (100 - diffThreshold) / 100));
+        int maxLength = diffThreshold < 0 ? length : diffThreshold >= 100 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, Math.ceil(length * 100 / (100 - diffThreshold)));
+        List<Integer> candidateGroups = new ArrayList<>();
+        for (List<Integer> groups : groupsByRepresentativeLength.subMap(minLength, true, maxLength, true).values()) {
+            candidateGroups.addAll(groups);
+        }
+        Collections.sort(candidateGroups);
+        for (Integer groupIndex : candidateGroups) {
+            if (Main.failuresAreEqual(failureToCompare, representatives.get(groupIndex), diffThreshold)) {
+                return groupIndex;
+            }
+        }
+        return null;
+    }
+}
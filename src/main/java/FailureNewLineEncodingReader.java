@@ -0,0 +1,147 @@
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Encodes "\n" characters between <failure...</failure> and <error...</error> with "&#10;" while a JUnit report is read,
+ * so those won't be replaced with space char when the XML parsers read the failures messages. From the line of a "<failure message="
+ * start tag, up to 10 new lines are encoded, until a line with the end tag. The failure elements are encoded first,
+ * then the error elements of the result, as the first versions of the tool did for the whole report.
+ * Each char is read once, and only the chars of the last read are kept, so it can read a report of any size in front of any parser.
+ */
+class FailureNewLineEncodingReader extends FilterReader {
+    static final int BUFFER_SIZE = 8192;
+    private static final int MAX_ENCODED_NEW_LINES = 10;
+    private static final String ENCODED_NEW_LINE = "&#10;";
+
+    private final char[] inputBuffer;
+    private final StringBuilder output = new StringBuilder();
+    private int outputIndex;
+    private final LinesEncoder errorsEncoder = new LinesEncoder("<error message=", "</error>", null);
+    private final LinesEncoder failuresEncoder = new LinesEncoder("<failure message=", "</failure>", errorsEncoder);
+
+    FailureNewLineEncodingReader(Reader reader) {
+        this(reader, BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize the count of the chars read from @reader at once
+     */
+    FailureNewLineEncodingReader(Reader reader, int bufferSize) {
+        super(reader);
+        this.inputBuffer = new char[bufferSize];
+    }
+
+    @Override
+    public int read() throws IOException {
+        char[] buffer = new char[1];
+        return read(buffer, 0, 1) == -1 ? -1 : buffer[0];
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        while (outputIndex == output.length()) {
+            output.setLength(0);
+            outputIndex = 0;
+            int readCount = in.read(inputBuffer, 0, inputBuffer.length);
+            if (readCount == -1) {
+                return -1;
+            }
+            for (int i = 0; i < readCount; i++) {
+                failuresEncoder.accept(inputBuffer[i]);
+            }
+        }
+        int count = Math.min(length, output.length() - outputIndex);
+        output.getChars(outputIndex, outputIndex + count, buffer, offset);
+        outputIndex += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        char[] buffer = new char[(int) Math.min(count, BUFFER_SIZE)];
+        long skipped = 0;
+        int readCount;
+        while (skipped < count && (readCount = read(buffer, 0, (int) Math.min(count - skipped, buffer.length))) != -1) {
+            skipped += readCount;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * The encoding of the elements with a start tag, the chars it outputs go to the next encoder, or to the output of the reader.
+     */
+    private class LinesEncoder {
+        private final String tag;
+        private final String endTag;
+        private final LinesEncoder next;
+        // true from the start tag until a line with the end tag, or until the maximum new lines count is encoded
+        private boolean encodes;
+        private int encodedNewLinesCount;
+        // the count of the first chars of the tag and of the end tag matched by the last chars
+        private int tagMatchLength;
+        private int endTagMatchLength;
+        // true if the current line, from the start tag for the first one, contains the tag or the end tag
+        private boolean lineHasTag;
+        private boolean lineHasEndTag;
+
+        LinesEncoder(String tag, String endTag, LinesEncoder next) {
+            this.tag = tag;
+            this.endTag = endTag;
+            this.next = next;
+        }
+
+        void accept(char c) {
+            if (c == '\n' && encodes) {
+                if (!lineHasEndTag && encodedNewLinesCount < MAX_ENCODED_NEW_LINES) {
+                    encodedNewLinesCount = lineHasTag ? 1 : encodedNewLinesCount + 1;
+                    for (int i = 0; i < ENCODED_NEW_LINE.length(); i++) {
+                        emit(ENCODED_NEW_LINE.charAt(i));
+                    }
+                } else {
+                    encodes = false;
+                    encodedNewLinesCount = 0;
+                    emit(c);
+                }
+                lineHasTag = false;
+                lineHasEndTag = false;
+                tagMatchLength = 0;
+                endTagMatchLength = 0;
+                return;
+            }
+            emit(c);
+            // the tags start with '<', which is not in the rest of the tags
+            tagMatchLength = c == tag.charAt(tagMatchLength) ? tagMatchLength + 1 : c == '<' ? 1 : 0;
+            if (tagMatchLength == tag.length()) {
+                tagMatchLength = 0;
+                lineHasTag = true;
+                if (!encodes) {
+                    // the first line of the element starts at its start tag
+                    encodes = true;
+                    lineHasEndTag = false;
+                    endTagMatchLength = 0;
+                }
+            }
+            if (encodes) {
+                endTagMatchLength = c == endTag.charAt(endTagMatchLength) ? endTagMatchLength + 1 : c == '<' ? 1 : 0;
+                if (endTagMatchLength == endTag.length()) {
+                    endTagMatchLength = 0;
+                    lineHasEndTag = true;
+                }
+            }
+        }
+
+        private void emit(char c) {
+            if (next == null) {
+                output.append(c);
+            } else {
+                next.accept(c);
+            }
+        }
+    }
+}
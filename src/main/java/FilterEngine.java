@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The artifacts, node URL and build parameters filters, compiled once when the arguments are parsed.
+ * The compiled patterns are immutable, so the same FilterEngine is used by all the nodes threads.
+ */
+class FilterEngine {
+    // the artifacts filters in one pattern, null if there isn't any artifacts filter or they can't be combined
+    private final Pattern artifactsPattern;
+    // the artifacts filters, matched one by one if they can't be combined
+    private final List<Pattern> artifactsPatterns = new ArrayList<>();
+    // null if there isn't a node URL filter
+    private final Pattern nodeUrlPattern;
+
+    /**
+     * @param artifactsFilters the artifacts relative paths regular expressions separated by comma ","
+     * @param nodeUrlFilter    the nodes URLs regular expression, or empty for all the nodes
+     */
+    FilterEngine(String artifactsFilters, String nodeUrlFilter) {
+        String[] filters = artifactsFilters.split(",");
+        Pattern combinedPattern = null;
+        if (filters.length > 0 && !filters[0].isEmpty()) {
+            String combinedRegex = null;
+            boolean canBeCombined = true;
+            for (String filter : filters) {
+                artifactsPatterns.add(Pattern.compile(filter));
+                // the groups are numbered in the combined pattern, so the back references would refer other groups
+                canBeCombined = canBeCombined && !hasBackReference(filter);
+                combinedRegex = combinedRegex == null ? "(?:".concat(filter).concat(")") : combinedRegex.concat("|(?:").concat(filter).concat(")");
+            }
+            if (canBeCombined) {
+                try {
+                    combinedPattern = Pattern.compile(combinedRegex);
+                } catch (PatternSyntaxException e) {
+                    // e.g. the same group name in two filters
+                    combinedPattern = null;
+                }
+            }
+        }
+        this.artifactsPattern = combinedPattern;
+        this.nodeUrlPattern = nodeUrlFilter.isEmpty() ? null : Pattern.compile(nodeUrlFilter);
+    }
+
+    /**
+     * @return true if @artifactRelativePath matches one of the artifacts filters, or if there aren't artifacts filters
+     */
+    boolean matchesArtifact(String artifactRelativePath) {
+        if (artifactsPattern != null) {
+            return artifactsPattern.matcher(artifactRelativePath).matches();
+        }
+        if (artifactsPatterns.isEmpty()) {
+            return true;
+        }
+        for (Pattern pattern : artifactsPatterns) {
+            if (pattern.matcher(artifactRelativePath).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if @nodeUrl matches the node URL filter, or if there isn't a node URL filter
+     */
+    boolean matchesNodeUrl(String nodeUrl) {
+        return nodeUrlPattern == null || nodeUrlPattern.matcher(nodeUrl).matches();
+    }
+
+    /**
+     * @return true if @buildParams matches all parameter values from @buildParamsFilter map
+     */
+    static boolean matchesBuildParams(Map<String, String> buildParams, Map<String, String> buildParamsFilter) {
+        for (Map.Entry<String, String> buildParamFilter : buildParamsFilter.entrySet()) {
+            if (!buildParamFilter.getValue().equals(buildParams.get(buildParamFilter.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if @regex contains a numbered or a named back reference
+     */
+    private static boolean hasBackReference(String regex) {
+        for (int i = 0; i + 1 < regex.length(); i++) {
+            if (regex.charAt(i) == '\\') {
+                char next = regex.charAt(i + 1);
+                if (next == 'k' || (next >= '1' && next <= '9')) {
+                    return true;
+                }
+                i++;
+            }
+        }
+        return false;
+    }
+}
@@ -74,6 +74,11 @@ public class HtmlGenerator {
         return this;
     }
 
+    public HtmlGenerator addPreformattedText(String text) {
+        content = content.concat("<pre>").concat(text).concat("</pre>\n");
+        return this;
+    }
+
     public HtmlGenerator addLink(String name, String link) {
         content = content.concat("<a href=\"").concat(link).concat("\">").concat(name).concat("</a>\n");
         return this;
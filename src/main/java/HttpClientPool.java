@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.net.URI;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * The process-wide HTTP client used for all the Jenkins and Jira calls.
+ * The connections are pooled and kept alive between requests, so the artifacts downloads don't pay for a new TCP/TLS handshake each time.
+ * The connections, the pool and the reads have timeouts, so a stalled Jenkins fails the request instead of blocking its thread,
+ * and the request is retried by the RequestGovernor.
+ */
+public class HttpClientPool {
+    static final int DEFAULT_KEEP_ALIVE_SECONDS = 30;
+    static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 30;
+    // the time without receiving any byte, Jenkins may take a while before sending the first bytes of a large API response
+    static final int DEFAULT_SOCKET_TIMEOUT_SECONDS = 300;
+
+    private static CloseableHttpClient httpClient;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(HttpClientPool::close));
+    }
+
+    /**
+     * Create the shared client, it should be called once before the first request.
+     *
+     * @param maxConnections         the maximum connections count in the pool
+     * @param maxConnectionsPerRoute the maximum connections count for the same host
+     * @param keepAliveSeconds       how long an idle connection is kept alive if the server doesn't specify it
+     * @param connectTimeoutSeconds  how long a connection is established or waited from the pool, 0 waits forever
+     * @param socketTimeoutSeconds   how long a response may not send any byte, 0 waits forever
+     */
+    static synchronized void init(int maxConnections, int maxConnectionsPerRoute, int keepAliveSeconds, int connectTimeoutSeconds, int socketTimeoutSeconds) {
+        if (httpClient != null) {
+            close();
+        }
+        final long keepAliveMillis = keepAliveSeconds * 1000L;
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        // check the stale connections only if they were idle for a while
+        connectionManager.setValidateAfterInactivity(2000);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(Math.max(connectTimeoutSeconds, 0) * 1000)
+                .setConnectionRequestTimeout(Math.max(connectTimeoutSeconds, 0) * 1000)
+                .setSocketTimeout(Math.max(socketTimeoutSeconds, 0) * 1000)
+                .build();
+        ContentEncodingInterceptor contentEncodingInterceptor = new ContentEncodingInterceptor();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // the responses are decompressed by contentEncodingInterceptor, which counts also the compressed bytes
+                .disableContentCompression()
+                .addInterceptorLast((HttpRequestInterceptor) contentEncodingInterceptor)
+                .addInterceptorLast((HttpResponseInterceptor) contentEncodingInterceptor)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : keepAliveMillis;
+                })
+                .build();
+    }
+
+    static synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            init(processors * 2, processors, DEFAULT_KEEP_ALIVE_SECONDS, DEFAULT_CONNECT_TIMEOUT_SECONDS, DEFAULT_SOCKET_TIMEOUT_SECONDS);
+        }
+        return httpClient;
+    }
+
+    /**
+     * @return a new execution context for @uri, which sends the basic authentication preemptively if @username is not null
+     */
+    static HttpClientContext createContext(URI uri, String username, String password) {
+        HttpClientContext context = HttpClientContext.create();
+        if (username == null) {
+            return context;
+        }
+        HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+        CredentialsProvider credsProvider = new BasicCredentialsProvider();
+        credsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()), new UsernamePasswordCredentials(username, password));
+        // add the BASIC scheme to the auth cache, so the credentials are sent with the first request
+        AuthCache authCache = new BasicAuthCache();
+        authCache.put(host, new BasicScheme());
+        context.setCredentialsProvider(credsProvider);
+        context.setAuthCache(authCache);
+        return context;
+    }
+
+    static synchronized void close() {
+        if (httpClient == null) {
+            return;
+        }
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            System.err.println("Got exception when closing the HTTP client: " + e);
+        } finally {
+            httpClient = null;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Finds the testcase elements with failure, error or skipped elements in a JUnit report without parsing the whole report.
+ * Most of the tests of a report pass, so the report is scanned for the '<' chars of the tags, and only the testcase elements
+ * containing one of those tags are parsed by JUnitReportParser. The classname and name attributes of the other testcase elements
+ * are still read, as the tests urls of the duplicate tests are numbered in the order of the report.
+ * The scan gives up on the reports it can't read exactly, like the nested testcase elements or a DOCTYPE which may declare entities,
+ * so they are read by the full parser.
+ */
+class JUnitFailuresScanner {
+    private static final String TEST_CASE_TAG = "testcase";
+    private static final String[] FAILURE_TAGS = {"failure", "error", "skipped"};
+
+    private JUnitFailuresScanner() {
+    }
+
+    /**
+     * @param readsTexts true if the text content of the failures is needed, otherwise their text is null
+     * @return all the testcase elements of @jUnitReportXml in the order of the report, only those with failures have failure elements,
+     * or null if the report has to be read by the full parser
+     */
+    static List<TestCaseElement> scan(String jUnitReportXml, boolean readsTexts) {
+        List<TestCaseElement> testCases = new ArrayList<>();
+        // the testcase elements with failures, parsed together at the end, and their index in testCases
+        List<String> failedTestCasesXml = new ArrayList<>();
+        List<Integer> failedTestCasesIndexes = new ArrayList<>();
+        // the testcase element being scanned, with the start of its tag
+        TestCaseElement testCase = null;
+        int testCaseStart = -1;
+        boolean hasFailures = false;
+        // the name of the root element and of the last end tag, a truncated report doesn't end with the end tag of its root element
+        int rootNameStart = -1;
+        int rootNameEnd = -1;
+        int lastEndTagNameStart = -1;
+        int lastEndTagNameEnd = -1;
+        int position = 0;
+        String[] attributes = new String[2];
+        while ((position = jUnitReportXml.indexOf('<', position)) != -1) {
+            if (jUnitReportXml.startsWith("<![CDATA[", position)) {
+                position = getEnd(jUnitReportXml, "]]>", position);
+            } else if (jUnitReportXml.startsWith("<!--", position)) {
+                position = getEnd(jUnitReportXml, "-->", position);
+            } else if (jUnitReportXml.startsWith("<?", position)) {
+                position = getEnd(jUnitReportXml, "?>", position);
+            } else if (jUnitReportXml.startsWith("<!", position)) {
+                return null;
+            } else {
+                boolean endTag = jUnitReportXml.startsWith("</", position);
+                int nameStart = position + (endTag ? 2 : 1);
+                int nameEnd = getNameEnd(jUnitReportXml, nameStart);
+                if (endTag) {
+                    lastEndTagNameStart = nameStart;
+                    lastEndTagNameEnd = nameEnd;
+                } else if (rootNameStart == -1) {
+                    rootNameStart = nameStart;
+                    rootNameEnd = nameEnd;
+                }
+                if (isName(jUnitReportXml, nameStart, nameEnd, TEST_CASE_TAG)) {
+                    if (endTag) {
+                        position = jUnitReportXml.indexOf('>', nameEnd) + 1;
+                        if (testCase == null || position == 0) {
+                            return null;
+                        }
+                        if (hasFailures) {
+                            failedTestCasesXml.add(jUnitReportXml.substring(testCaseStart, position));
+                            failedTestCasesIndexes.add(testCases.size());
+                        }
+                        testCases.add(testCase);
+                        testCase = null;
+                    } else {
+                        position = readAttributes(jUnitReportXml, nameEnd, attributes);
+                        if (testCase != null || position == -1) {
+                            return null;
+                        }
+                        TestCaseElement startedTestCase = new TestCaseElement(attributes[0], attributes[1]);
+                        if (jUnitReportXml.charAt(position - 2) == '/') {
+                            testCases.add(startedTestCase);
+                        } else {
+                            testCase = startedTestCase;
+                            testCaseStart = nameStart - 1;
+                            hasFailures = false;
+                        }
+                    }
+                } else {
+                    if (testCase != null && !endTag) {
+                        for (String failureTag : FAILURE_TAGS) {
+                            hasFailures |= isName(jUnitReportXml, nameStart, nameEnd, failureTag);
+                        }
+                    }
+                    // the attributes values don't contain '<' chars
+                    position = nameEnd;
+                }
+            }
+            if (position == -1) {
+                return null;
+            }
+        }
+        if (testCase != null || lastEndTagNameStart == -1 || lastEndTagNameEnd - lastEndTagNameStart != rootNameEnd - rootNameStart
+                || !jUnitReportXml.regionMatches(lastEndTagNameStart, jUnitReportXml, rootNameStart, rootNameEnd - rootNameStart)
+                || skipWhitespaces(jUnitReportXml, jUnitReportXml.indexOf('>', lastEndTagNameEnd) + 1) != jUnitReportXml.length()) {
+            return null;
+        }
+        return parseFailedTestCases(failedTestCasesXml, failedTestCasesIndexes, readsTexts, testCases) ? testCases : null;
+    }
+
+    /**
+     * Replace the testcase elements with failures of @testCases with the elements read by JUnitReportParser.
+     *
+     * @return false if they can't be read
+     */
+    private static boolean parseFailedTestCases(List<String> failedTestCasesXml, List<Integer> failedTestCasesIndexes, boolean readsTexts, List<TestCaseElement> testCases) {
+        List<TestCaseElement> failedTestCases = new ArrayList<>();
+        try {
+            JUnitReportParser.parseWithStax(failedTestCasesXml, readsTexts, failedTestCases::add);
+        } catch (XMLStreamException e) {
+            return false;
+        }
+        if (failedTestCases.size() != failedTestCasesIndexes.size()) {
+            return false;
+        }
+        for (int i = 0; i < failedTestCases.size(); i++) {
+            testCases.set(failedTestCasesIndexes.get(i), failedTestCases.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * @return the index after the @end of the markup starting at @start, or -1 if it doesn't end
+     */
+    private static int getEnd(String xml, String end, int start) {
+        int endIndex = xml.indexOf(end, start + 2);
+        return endIndex == -1 ? -1 : endIndex + end.length();
+    }
+
+    private static int getNameEnd(String xml, int nameStart) {
+        int nameEnd = nameStart;
+        while (nameEnd < xml.length() && !isWhitespace(xml.charAt(nameEnd)) && xml.charAt(nameEnd) != '/' && xml.charAt(nameEnd) != '>') {
+            nameEnd++;
+        }
+        return nameEnd;
+    }
+
+    private static boolean isName(String xml, int nameStart, int nameEnd, String name) {
+        return nameEnd - nameStart == name.length() && xml.startsWith(name, nameStart);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static int skipWhitespaces(String xml, int position) {
+        while (position < xml.length() && isWhitespace(xml.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Read the classname and name attributes of the testcase tag whose name ends at @position, "" for a missing attribute like Element.getAttribute().
+     *
+     * @param attributes the classname and name values read
+     * @return the index after the end of the tag, or -1 if the tag is not well-formed
+     */
+    private static int readAttributes(String xml, int position, String[] attributes) {
+        attributes[0] = "";
+        attributes[1] = "";
+        while (true) {
+            int attributeStart = skipWhitespaces(xml, position);
+            if (attributeStart == xml.length()) {
+                return -1;
+            } else if (xml.charAt(attributeStart) == '>') {
+                return attributeStart + 1;
+            } else if (xml.charAt(attributeStart) == '/') {
+                return xml.startsWith(">", attributeStart + 1) ? attributeStart + 2 : -1;
+            } else if (attributeStart == position) {
+                // the attributes are separated by whitespaces
+                return -1;
+            }
+            int nameEnd = attributeStart;
+            while (nameEnd < xml.length() && !isWhitespace(xml.charAt(nameEnd)) && "=/>".indexOf(xml.charAt(nameEnd)) == -1) {
+                nameEnd++;
+            }
+            int equalsIndex = skipWhitespaces(xml, nameEnd);
+            int valueStart = skipWhitespaces(xml, equalsIndex + 1);
+            if (nameEnd == attributeStart || equalsIndex == xml.length() || xml.charAt(equalsIndex) != '=' || valueStart == xml.length()
+                    || (xml.charAt(valueStart) != '"' && xml.charAt(valueStart) != '\'')) {
+                return -1;
+            }
+            int valueEnd = xml.indexOf(xml.charAt(valueStart), valueStart + 1);
+            String value = valueEnd == -1 ? null : decodeAttributeValue(xml, valueStart + 1, valueEnd);
+            if (value == null) {
+                return -1;
+            }
+            if (isName(xml, attributeStart, nameEnd, "classname")) {
+                attributes[0] = value;
+            } else if (isName(xml, attributeStart, nameEnd, "name")) {
+                attributes[1] = value;
+            }
+            position = valueEnd + 1;
+        }
+    }
+
+    /**
+     * @return the value of an attribute, with the references replaced and the whitespaces normalized like the XML parsers do,
+     * or null if it is not well-formed or it has entities which are not predefined
+     */
+    private static String decodeAttributeValue(String xml, int start, int end) {
+        // most values are kept as they are
+        int plainEnd = start;
+        while (plainEnd < end && "<&\r\n\t".indexOf(xml.charAt(plainEnd)) == -1) {
+            plainEnd++;
+        }
+        if (plainEnd == end) {
+            return xml.substring(start, end);
+        }
+        StringBuilder value = new StringBuilder(end - start).append(xml, start, plainEnd);
+        for (int i = plainEnd; i < end; i++) {
+            char c = xml.charAt(i);
+            if (c == '<') {
+                return null;
+            } else if (c == '\r') {
+                // the end of lines are normalized to '\n' before the whitespaces are replaced
+                value.append(' ');
+                if (i + 1 < end && xml.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else if (c == '\n' || c == '\t') {
+                value.append(' ');
+            } else if (c == '&') {
+                int referenceEnd = xml.indexOf(';', i);
+                if (referenceEnd == -1 || referenceEnd >= end) {
+                    return null;
+                }
+                String reference = xml.substring(i + 1, referenceEnd);
+                if (reference.startsWith("#") && !reference.matches("#[0-9]+|#x[0-9a-fA-F]+")) {
+                    return null;
+                }
+                int codePoint;
+                try {
+                    codePoint = "lt".equals(reference) ? '<' : "gt".equals(reference) ? '>' : "amp".equals(reference) ? '&'
+                            : "quot".equals(reference) ? '"' : "apos".equals(reference) ? '\''
+                            : reference.startsWith("#x") ? Integer.parseInt(reference.substring(2), 16)
+                            : reference.startsWith("#") ? Integer.parseInt(reference.substring(1)) : -1;
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (codePoint <= 0 || !Character.isValidCodePoint(codePoint)) {
+                    return null;
+                }
+                value.appendCodePoint(codePoint);
+                i = referenceEnd;
+            } else {
+                value.append(c);
+            }
+        }
+        return value.toString();
+    }
+}
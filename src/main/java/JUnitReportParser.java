@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Reads the testcase elements of a JUnit report with their failure, error and skipped elements. There are two parsers:
+ * - STAX_PARSER, the default, reads the report in one forward pass with a StAX pull parser, keeping in memory
+ * only the testcase elements being read and the text of their failures.
+ * - DOM_PARSER builds the DOM of the whole report, as the first versions of the tool.
+ * Both keep the new lines of the failures messages, which the XML parsers replace with spaces in the attributes values.
+ */
+class JUnitReportParser {
+    static final String STAX_PARSER = "stax";
+    static final String DOM_PARSER = "dom";
+    private static final String TEST_CASE_TAG = "testcase";
+    private static final String FAILURE_TAG = "failure";
+    private static final String ERROR_TAG = "error";
+    private static final String SKIPPED_TAG = "skipped";
+    // the factories are not thread safe, and creating one for each report looks up the implementation each time
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        // the tags are matched by their name with the prefix, like DocumentBuilderFactory does by default
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return xmlInputFactory;
+    });
+
+    private JUnitReportParser() {
+    }
+
+    /**
+     * Give each testcase element of @jUnitReportXml to @testCases, in the order of the report.
+     *
+     * @param parser     STAX_PARSER or DOM_PARSER
+     * @param readsTexts true if the text content of the failures is needed, otherwise their text is null
+     */
+    static void parse(String jUnitReportXml, String parser, boolean readsTexts, Consumer<TestCaseElement> testCases)
+            throws ParserConfigurationException, IOException, SAXException, XMLStreamException {
+        if (DOM_PARSER.equals(parser)) {
+            parseWithDom(jUnitReportXml, readsTexts, testCases);
+        } else {
+            parseWithStax(new StringReader(jUnitReportXml), readsTexts, testCases);
+        }
+    }
+
+    /**
+     * Read the testcase elements of @testCasesXml, parts of a report with a testcase element each, in one pass
+     * as if they were the children of a root element. The new lines of the failures are encoded from the start of each part.
+     */
+    static void parseWithStax(List<String> testCasesXml, boolean readsTexts, Consumer<TestCaseElement> testCases) throws XMLStreamException {
+        List<Reader> readers = new ArrayList<>();
+        readers.add(new StringReader("<testcases>"));
+        for (String testCaseXml : testCasesXml) {
+            // most parts are small, they don't need the whole buffer
+            readers.add(new FailureNewLineEncodingReader(new StringReader(testCaseXml), Math.max(1, Math.min(testCaseXml.length(), FailureNewLineEncodingReader.BUFFER_SIZE))));
+        }
+        readers.add(new StringReader("</testcases>"));
+        parseEncodedWithStax(new SequenceReader(readers), readsTexts, testCases);
+    }
+
+    private static void parseWithStax(Reader reader, boolean readsTexts, Consumer<TestCaseElement> testCases) throws XMLStreamException {
+        parseEncodedWithStax(new FailureNewLineEncodingReader(reader), readsTexts, testCases);
+    }
+
+    /**
+     * Read the testcase elements from @reader in one pass. A testcase is given to @testCases at its end tag,
+     * or at the end tag of the outermost testcase containing it, so they are given in the order of their start tags.
+     *
+     * @param reader the report with the new lines of the failures encoded, see FailureNewLineEncodingReader
+     */
+    private static void parseEncodedWithStax(Reader reader, boolean readsTexts, Consumer<TestCaseElement> testCases) throws XMLStreamException {
+        XMLStreamReader xmlReader = XML_INPUT_FACTORY.get().createXMLStreamReader(reader);
+        try {
+            // the testcase or failure element of each open element, or the report itself for the other elements
+            Deque<Object> openElements = new ArrayDeque<>();
+            Deque<TestCaseElement> openTestCases = new ArrayDeque<>();
+            List<TestCaseElement> readTestCases = new ArrayList<>();
+            // the failures being read, their text content contains the text of their child elements too
+            List<TestCaseElement.FailureElement> openFailures = new ArrayList<>();
+            while (xmlReader.hasNext()) {
+                int event = xmlReader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String tag = xmlReader.getLocalName();
+                    Object element = JUnitReportParser.class;
+                    if (TEST_CASE_TAG.equals(tag)) {
+                        TestCaseElement testCase = new TestCaseElement(getAttribute(xmlReader, "classname"), getAttribute(xmlReader, "name"));
+                        openTestCases.push(testCase);
+                        readTestCases.add(testCase);
+                        element = testCase;
+                    } else if (!openTestCases.isEmpty() && (FAILURE_TAG.equals(tag) || ERROR_TAG.equals(tag) || SKIPPED_TAG.equals(tag))) {
+                        TestCaseElement.FailureElement failure = new TestCaseElement.FailureElement(getAttribute(xmlReader, "message"), readsTexts ? "" : null);
+                        // like getElementsByTagName(), a failure belongs to all the testcase elements containing it
+                        for (TestCaseElement testCase : openTestCases) {
+                            (FAILURE_TAG.equals(tag) ? testCase.failures : ERROR_TAG.equals(tag) ? testCase.errors : testCase.skipped).add(failure);
+                        }
+                        if (readsTexts) {
+                            openFailures.add(failure);
+                        }
+                        element = failure;
+                    }
+                    openElements.push(element);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    Object element = openElements.pop();
+                    if (element instanceof TestCaseElement.FailureElement) {
+                        openFailures.remove(element);
+                    } else if (element instanceof TestCaseElement) {
+                        openTestCases.pop();
+                        if (openTestCases.isEmpty()) {
+                            readTestCases.forEach(testCases);
+                            readTestCases.clear();
+                        }
+                    }
+                    if (openElements.isEmpty()) {
+                        // the encoded new lines after a failure element without end tag may reach after the root element,
+                        // where the character references are not allowed, so the rest of the report is not read
+                        break;
+                    }
+                } else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) && !openFailures.isEmpty()) {
+                    String text = xmlReader.getText();
+                    for (TestCaseElement.FailureElement failure : openFailures) {
+                        failure.text = failure.text.concat(text);
+                    }
+                }
+            }
+        } finally {
+            xmlReader.close();
+        }
+    }
+
+    /**
+     * @return the value of the attribute @name of the current element, or "" if it doesn't have it, like Element.getAttribute()
+     */
+    private static String getAttribute(XMLStreamReader xmlReader, String name) {
+        String value = xmlReader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    private static void parseWithDom(String jUnitReportXml, boolean readsTexts, Consumer<TestCaseElement> testCases) throws ParserConfigurationException, IOException, SAXException {
+        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+        Document doc = dBuilder.parse(new InputSource(new FailureNewLineEncodingReader(new StringReader(jUnitReportXml))));
+        doc.getDocumentElement().normalize();
+        NodeList testCasesList = doc.getElementsByTagName(TEST_CASE_TAG);
+        for (int testCaseIndex = 0; testCaseIndex < testCasesList.getLength(); testCaseIndex++) {
+            Node testCaseNode = testCasesList.item(testCaseIndex);
+            if (testCaseNode.getNodeType() == Node.ELEMENT_NODE) {
+                Element testCaseElement = (Element) testCaseNode;
+                TestCaseElement testCase = new TestCaseElement(testCaseElement.getAttribute("classname"), testCaseElement.getAttribute("name"));
+                addFailures(testCaseElement.getElementsByTagName(FAILURE_TAG), readsTexts, testCase.failures);
+                addFailures(testCaseElement.getElementsByTagName(ERROR_TAG), readsTexts, testCase.errors);
+                addFailures(testCaseElement.getElementsByTagName(SKIPPED_TAG), readsTexts, testCase.skipped);
+                testCases.accept(testCase);
+            }
+        }
+    }
+
+    private static void addFailures(NodeList failureNodes, boolean readsTexts, List<TestCaseElement.FailureElement> failures) {
+        for (int failureNodeIndex = 0; failureNodeIndex < failureNodes.getLength(); failureNodeIndex++) {
+            Element failureElement = (Element) failureNodes.item(failureNodeIndex);
+            failures.add(new TestCaseElement.FailureElement(failureElement.getAttribute("message"), readsTexts ? failureElement.getTextContent() : null));
+        }
+    }
+
+    /**
+     * Reads the chars of several readers, one after the other.
+     */
+    private static class SequenceReader extends Reader {
+        private final Iterator<Reader> readers;
+        private Reader reader;
+
+        SequenceReader(List<Reader> readers) {
+            this.readers = readers.iterator();
+            this.reader = this.readers.next();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            while (reader != null) {
+                int readCount = reader.read(buffer, offset, length);
+                if (readCount != -1) {
+                    return readCount;
+                }
+                reader = readers.hasNext() ? readers.next() : null;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() {
+            reader = null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Builds the Jenkins JSON API URLs, requesting with the "tree" query parameter only the fields used by the tool,
+ * instead of the full job, build and node objects.
+ */
+class JenkinsApi {
+    private static final String API_JSON = "/api/json";
+    private static final String ARCHIVE_ZIP = "/*zip*/archive.zip";
+    private static final String ANY_CHARS = ".*";
+    private static final String REGEX_META_CHARS = "\\.[]{}()*+?^$|";
+
+    // the builds numbers and URLs are enough for selecting builds by numbers or the last builds count
+    static final String JOB_BUILDS_TREE = "builds[number,url]";
+    // filtering the builds by time and parameters needs also the timestamp and the parameters for each build
+    static final String JOB_BUILDS_DETAILS_TREE = "builds[number,url,timestamp,actions[parameters[name,value]]]";
+    // the fields of a single build: the timestamp and the parameters, when they are not in the job response,
+    // the matrix runs URLs, for the builds which are not matrix builds there aren't runs,
+    // and if the build is running, as only the finished builds artifacts are cached.
+    // The same tree is used for all the build requests, so the build response is downloaded only once, see UrlResponseCache
+    static final String BUILD_TREE = "number,url,building,timestamp,actions[parameters[name,value]],runs[number,url]";
+    // the artifacts sizes are used for downloading the large artifacts in chunks, see RangedArtifactSearch
+    static final String NODE_ARTIFACTS_TREE = "artifacts[relativePath,fileSize]";
+
+    /**
+     * @return the JSON API URL for @url, returning only the @tree fields
+     */
+    static String getApiJsonUrl(String url, String tree) throws UnsupportedEncodingException {
+        // the brackets are not allowed in a query by java.net.URI, so the tree needs to be encoded
+        return url.concat(API_JSON).concat("?tree=").concat(URLEncoder.encode(tree, CharEncoding.UTF_8));
+    }
+
+    /**
+     * @return the tree used for the job API request, based on the builds filters from @toolArgs
+     */
+    static String getJobTree(ToolArgs toolArgs) {
+        return toolArgs.buildsFromLastXHours > 0 || !toolArgs.buildParamsFilter.isEmpty() ? JOB_BUILDS_DETAILS_TREE : JOB_BUILDS_TREE;
+    }
+
+    /**
+     * @return the URL of the zip archive with the node artifacts matching @glob, @artifactUrlPrefix is the node "artifact/" URL
+     */
+    static String getArtifactsArchiveUrl(String artifactUrlPrefix, String glob) {
+        return artifactUrlPrefix.concat(glob).concat(ARCHIVE_ZIP);
+    }
+
+    /**
+     * @return the Ant globs matching the same artifacts relative paths as the @artifactsFilters regular expressions separated by comma,
+     * or null if a filter cannot be written as a glob. Only the filters like ".*literal" with no "/" in literal are converted,
+     * to "**&#47;*literal", as a ".*" followed by more chars can cross the directories boundaries.
+     */
+    static List<String> getArtifactsGlobs(String artifactsFilters) {
+        String[] filters = artifactsFilters.split(",");
+        if (filters.length == 0 || filters[0].isEmpty()) {
+            return Collections.singletonList("**");
+        }
+        List<String> globs = new ArrayList<>();
+        for (String filter : filters) {
+            if (!filter.startsWith(ANY_CHARS)) {
+                return null;
+            }
+            StringBuilder literal = new StringBuilder();
+            for (int i = ANY_CHARS.length(); i < filter.length(); i++) {
+                char c = filter.charAt(i);
+                if (c == '\\' && i + 1 < filter.length() && REGEX_META_CHARS.indexOf(filter.charAt(i + 1)) != -1) {
+                    c = filter.charAt(++i);
+                } else if (REGEX_META_CHARS.indexOf(c) != -1) {
+                    return null;
+                }
+                if (c == '/' || c == '?' || c == '*' || c == ',' || Character.isWhitespace(c)) {
+                    return null;
+                }
+                literal.append(c);
+            }
+            globs.add("**/*".concat(literal.toString()));
+        }
+        return globs;
+    }
+}
@@ -2,40 +2,77 @@ import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
-import javax.xml.parsers.ParserConfigurationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.xml.sax.SAXException;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
 
 /**
  * Created by Teo on 8/8/2016.
  */
 class JenkinsNodeArtifactsFilter implements Callable<JenkinsNodeArtifactsFilter> {
+    // the artifacts of the finished builds don't change, so their parsed JUnit reports are cached without a version
+    private static final String FINISHED_BUILD_ARTIFACT_VERSION = "";
+    // the backup files are written and read with the default charset, whatever the charset of the artifact, see backupArtifact()
+    private static final Charset BACKUP_CHARSET = Charset.defaultCharset();
+    // the archives don't tell the charset of their entries, so they are decoded like the artifacts responses without a charset,
+    // see Main.getResponseCharset(), the artifacts served with another charset are decoded differently from an archive
+    private static final Charset ARCHIVE_ENTRY_CHARSET = Charset.defaultCharset();
 
     final ToolArgs toolArgs;
     final String buildNumber;
     final File backupBuildDirFile;
     final Boolean useBackup;
+    // the artifacts of the finished builds don't change, so they can be cached on disk
+    final Boolean finishedBuild;
+    final ExecutorService parserExecutorService;
     String nodeUrl;
-    List<String> matchedArtifacts = new ArrayList<>();
+    // the artifacts relative paths by the name of the searched pattern found in them
+    ArrayListValuedHashMap<String, String> matchedArtifacts = new ArrayListValuedHashMap<>();
+    // the lines where the searched patterns were found by the artifact relative path, if toolArgs.maxMatchesPerArtifact > 0
+    ArrayListValuedHashMap<String, MatchLocation> matchLocations = new ArrayListValuedHashMap<>();
+    // the artifacts not searched until the end, as the regular expressions spent the time budget of their search, see RegexBudget
+    List<String> timedOutArtifacts = new ArrayList<>();
+    // the artifacts not searched until the end, as their download failed after a part of them was searched
+    List<String> incompleteArtifacts = new ArrayList<>();
     List<String> matchedFailedTests = new ArrayList<>();
     ArrayListValuedHashMap<String, TestFailure> testsFailures = new ArrayListValuedHashMap<>();
     ArrayListValuedHashMap<String, TestStatus> testsStatus = new ArrayListValuedHashMap<>();
+    private List<Future<ArtifactParser>> parsedArtifacts = new ArrayList<>();
 
-    JenkinsNodeArtifactsFilter(ToolArgs toolArgs, String buildNumber, String nodeUrl, Boolean useBackup, File backupBuildDirFile) {
+    JenkinsNodeArtifactsFilter(ToolArgs toolArgs, String buildNumber, String nodeUrl, Boolean useBackup, Boolean finishedBuild, File backupBuildDirFile, ExecutorService parserExecutorService) {
         this.toolArgs = toolArgs;
         this.buildNumber = buildNumber;
         this.nodeUrl = nodeUrl;
         this.useBackup = useBackup;
+        this.finishedBuild = finishedBuild;
         this.backupBuildDirFile = backupBuildDirFile;
+        this.parserExecutorService = parserExecutorService;
     }
 
     /**
@@ -45,19 +82,41 @@ class JenkinsNodeArtifactsFilter implements Callable<JenkinsNodeArtifactsFilter>
     public JenkinsNodeArtifactsFilter call() {
         try {
             processNode();
-        } catch (IOException | ParserConfigurationException | SAXException e) {
+        } catch (IOException e) {
             String errorLog = "Exception when when processing node: build: " + buildNumber + " node: " + nodeUrl;
             System.err.println(errorLog + e.getLocalizedMessage());
             throw new RuntimeException(errorLog, e);
+        } finally {
+            // the I/O thread is reused for the next nodes
+            RegexBudget.set(null);
         }
         return this;
     }
 
+    /**
+     * Wait for the artifacts submitted for parsing by this node and collect their results.
+     * It is called after the node artifacts were downloaded, so the I/O thread doesn't wait for the parsing.
+     */
+    JenkinsNodeArtifactsFilter awaitParsedArtifacts() throws InterruptedException, ExecutionException {
+        for (Future<ArtifactParser> parsedArtifact : parsedArtifacts) {
+            ArtifactParser artifactParser = parsedArtifact.get();
+            matchedFailedTests.addAll(artifactParser.matchedFailedTests);
+            testsFailures.putAll(artifactParser.testsFailures);
+            testsStatus.putAll(artifactParser.testsStatus);
+            if (artifactParser.timedOut) {
+                timedOutArtifacts.add(artifactParser.artifactRelativePath);
+            }
+        }
+        parsedArtifacts.clear();
+        return this;
+    }
+
     /**
      * Find the searched text @searchedText in the current build node artifacts in a new thread.
-     * Saves the artifacts where it finds the @searchedText in matchedArtifacts list
+     * Saves the artifacts where it finds the @searchedText in matchedArtifacts, by the name of each searched pattern found.
+     * The artifacts are searched while they are downloaded, the JUnit reports are parsed by the parser executor, see awaitParsedArtifacts()
      */
-    private void processNode() throws IOException, ParserConfigurationException, SAXException {
+    private void processNode() throws IOException {
         File backupNodeDirFile = new File(backupBuildDirFile + File.separator + nodeUrl);
         if (!useBackup && toolArgs.backupJob) {
             backupNodeDirFile = new File(backupBuildDirFile + File.separator + Main.encodeFile(nodeUrl));
@@ -65,13 +124,19 @@ class JenkinsNodeArtifactsFilter implements Callable<JenkinsNodeArtifactsFilter>
         }
         List<String> artifactsRelativePaths;
         String artifactUrlPrefix = null;
+        Set<String> processedArtifacts = new HashSet<>();
+        Map<String, Long> artifactsSizes = new HashMap<>();
         if (useBackup) {
             artifactsRelativePaths = Arrays.asList(new FileHelper().getDirFilesList(backupNodeDirFile.getAbsolutePath(), "", false));
             nodeUrl = Main.decodeFile(nodeUrl);
         } else {
+            artifactUrlPrefix = toolArgs.newUrlPrefix.concat("/").concat(buildNumber).concat("/").concat(Main.replaceUrlPrefix(nodeUrl, toolArgs.jobUrl, "").replace(buildNumber.concat("/"), "").concat("/artifact/"));
+            if (toolArgs.artifactsGlobs != null && processArtifactsArchives(artifactUrlPrefix, backupNodeDirFile, processedArtifacts)) {
+                return;
+            }
             String nodeUrlResp;
             try {
-                nodeUrlResp = Main.getUrlResponse(Main.replaceUrlPrefix(nodeUrl, toolArgs.jobUrl, toolArgs.newUrlPrefix).concat("/api/json"), toolArgs.username, toolArgs.password);
+                nodeUrlResp = Main.getUrlResponse(JenkinsApi.getApiJsonUrl(Main.replaceUrlPrefix(nodeUrl, toolArgs.jobUrl, toolArgs.newUrlPrefix), JenkinsApi.NODE_ARTIFACTS_TREE), toolArgs.username, toolArgs.password);
             } catch (IOException e) {
                 System.err.println("Got exception when getting API response for node ".concat(nodeUrl).concat(": ").concat(e.toString()));
                 return;
@@ -79,41 +144,320 @@ class JenkinsNodeArtifactsFilter implements Callable<JenkinsNodeArtifactsFilter>
             Configuration conf = Configuration.defaultConfiguration().addOptions(Option.DEFAULT_PATH_LEAF_TO_NULL, Option.SUPPRESS_EXCEPTIONS);
             artifactsRelativePaths = JsonPath.using(conf).parse(nodeUrlResp).read(Main.artifactsRelativePathJsonPath);
             artifactsRelativePaths = artifactsRelativePaths == null ? new ArrayList<>() : artifactsRelativePaths;
-            artifactUrlPrefix = toolArgs.newUrlPrefix.concat("/").concat(buildNumber).concat("/").concat(Main.replaceUrlPrefix(nodeUrl, toolArgs.jobUrl, "").replace(buildNumber.concat("/"), "").concat("/artifact/"));
+            if (toolArgs.rangedArtifactSearch != null) {
+                // the sizes are in the same order as the relative paths, with null if Jenkins doesn't report the size
+                List<Number> artifactsFileSizes = JsonPath.using(conf).parse(nodeUrlResp).read(Main.artifactsFileSizeJsonPath);
+                for (int i = 0; artifactsFileSizes != null && i < Math.min(artifactsFileSizes.size(), artifactsRelativePaths.size()); i++) {
+                    if (artifactsFileSizes.get(i) != null) {
+                        artifactsSizes.put(artifactsRelativePaths.get(i), artifactsFileSizes.get(i).longValue());
+                    }
+                }
+            }
         }
         for (String artifactRelativePath : artifactsRelativePaths) {
-            if (!Main.artifactUrlMatchesFilters(useBackup ? Main.decodeFile(artifactRelativePath) : artifactRelativePath, toolArgs.artifactsFilters)) {
+            if (!toolArgs.filterEngine.matchesArtifact(useBackup ? Main.decodeFile(artifactRelativePath) : artifactRelativePath)) {
+                continue;
+            }
+            if (processedArtifacts.contains(artifactRelativePath)) {
+                // already processed from an archive before the archive download failed
                 continue;
             }
-            String artifactFileContent;
+            RegexBudget.start(toolArgs.regexTimeoutSeconds);
             if (useBackup) {
-                artifactFileContent = IOUtils.toString(new FileReader(backupNodeDirFile.getAbsoluteFile() + File.separator + artifactRelativePath));
-                artifactRelativePath = Main.decodeFile(artifactRelativePath);
-            } else {
-                String artifactUrl = artifactUrlPrefix + artifactRelativePath.replace(" ", "%20").replace("#", "%23");
+                if (toolArgs.backupJob) {
+                    continue;
+                }
+                File backupFile = new File(backupNodeDirFile.getAbsoluteFile() + File.separator + artifactRelativePath);
+                // a backup taken again, e.g. if the first one was taken while the build was running, has another size or modification time
+                String backupFileVersion = String.valueOf(backupFile.length()).concat(" ").concat(String.valueOf(backupFile.lastModified()));
+                if (submitCachedReport(Main.decodeFile(artifactRelativePath), backupFileVersion)) {
+                    continue;
+                }
+                processArtifactFile(Main.decodeFile(artifactRelativePath), backupFile, BACKUP_CHARSET, backupFileVersion);
+                continue;
+            }
+            if (submitCachedReport(artifactRelativePath, FINISHED_BUILD_ARTIFACT_VERSION)) {
+                continue;
+            }
+            String artifactUrl = artifactUrlPrefix + artifactRelativePath.replace(" ", "%20").replace("#", "%23");
+            boolean useDiskCache = toolArgs.diskResponseCache != null && finishedBuild && !toolArgs.backupJob;
+            File cachedArtifactFile = useDiskCache ? toolArgs.diskResponseCache.get(artifactUrl, buildNumber) : null;
+            if (cachedArtifactFile != null) {
+                try {
+                    processArtifactFile(artifactRelativePath, cachedArtifactFile, StandardCharsets.UTF_8, FINISHED_BUILD_ARTIFACT_VERSION);
+                    continue;
+                } catch (IOException e) {
+                    System.err.println("Got exception when reading the cached artifact ".concat(cachedArtifactFile.getPath()).concat(" for URL ").concat(artifactUrl).concat(", it is downloaded again: ").concat(e.toString()));
+                    toolArgs.diskResponseCache.remove(artifactUrl, buildNumber);
+                }
+            }
+            if (!useDiskCache && !toolArgs.backupJob && !isJUnitReportsMode() && toolArgs.rangedArtifactSearch != null
+                    && toolArgs.rangedArtifactSearch.isRangedArtifact(artifactsSizes.get(artifactRelativePath))) {
                 try {
-                    artifactFileContent = Main.getUrlResponse(artifactUrl, toolArgs.username, toolArgs.password);
+                    Set<String> foundPatterns = toolArgs.rangedArtifactSearch.find(artifactUrl, artifactsSizes.get(artifactRelativePath), toolArgs.patternsSearch, toolArgs.username, toolArgs.password);
+                    if (foundPatterns != null) {
+                        for (String patternName : foundPatterns) {
+                            matchedArtifacts.put(patternName, artifactRelativePath);
+                        }
+                        continue;
+                    }
                 } catch (IOException e) {
+                    System.err.println("Got exception when getting the chunks of artifact URL ".concat(artifactUrl).concat(", it is downloaded sequentially: ").concat(e.toString()));
+                } catch (RegexBudget.BudgetExceededException e) {
+                    addTimedOutArtifact(artifactRelativePath, e);
+                    continue;
+                }
+            }
+            downloadArtifact(artifactRelativePath, artifactUrl, useDiskCache, backupNodeDirFile);
+        }
+    }
+
+    /**
+     * Download the artifact @artifactUrl to the disk cache or the backup, or search it while it is downloaded.
+     * The download is retried if reading the content fails before the search read any of it, as the whole content is read again.
+     * If the search already read a part of the content, the artifact is added to incompleteArtifacts instead, as it may match
+     * the searched text after the failure.
+     */
+    private void downloadArtifact(String artifactRelativePath, String artifactUrl, boolean useDiskCache, File backupNodeDirFile) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            CloseableHttpResponse response = null;
+            SearchedReader artifactReader = null;
+            try {
+                response = Main.getUrlHttpResponse(artifactUrl, toolArgs.username, toolArgs.password);
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode != HttpStatus.SC_OK) {
+                    // the error pages are not the artifact content, they are not searched, cached or saved in the backup
+                    System.err.println("Got HTTP status " + statusCode + " for artifact URL " + artifactUrl + ", the artifact is not searched.");
+                    return;
+                }
+                if (useDiskCache) {
+                    // the whole artifact is downloaded for caching it, even if the searched text is found before its end
+                    File cachedArtifactFile = toolArgs.diskResponseCache.put(artifactUrl, buildNumber, Main.getResponseReader(response));
+                    processArtifactFile(artifactRelativePath, cachedArtifactFile, StandardCharsets.UTF_8, FINISHED_BUILD_ARTIFACT_VERSION);
+                    return;
+                }
+                if (toolArgs.backupJob) {
+                    backupArtifact(backupNodeDirFile, artifactRelativePath, Main.getResponseReader(response));
+                    return;
+                }
+                artifactReader = new SearchedReader(Main.getResponseReader(response));
+                processArtifact(artifactRelativePath, artifactReader, FINISHED_BUILD_ARTIFACT_VERSION);
+                return;
+            } catch (IOException e) {
+                if (response == null) {
+                    // the request was already retried by Main.getUrlHttpResponse()
                     System.err.println("Got exception when getting API response for artifact URL ".concat(artifactUrl).concat(": ").concat(e.toString()));
+                    return;
+                }
+                // the JUnit reports are parsed only after they are read until the end
+                if (artifactReader != null && artifactReader.searched && !isJUnitReportsMode()) {
+                    System.err.println("Got exception when reading the artifact URL ".concat(artifactUrl).concat(", it is not searched until the end: ").concat(e.toString()));
+                    incompleteArtifacts.add(artifactRelativePath);
+                    return;
+                }
+                if (!RequestGovernor.retryContent(artifactUrl, attempt, e)) {
+                    System.err.println("Got exception when getting API response for artifact URL ".concat(artifactUrl).concat(": ").concat(e.toString()));
+                    return;
+                }
+            } finally {
+                // if the artifact was not read until the end, this closes the connection instead of downloading the rest of it
+                IOUtils.closeQuietly(response);
+            }
+        }
+    }
+
+    /**
+     * Save in the backup the artifact content decoded by @artifactReader, encoded with the BACKUP_CHARSET,
+     * for all the artifacts whether they were downloaded one by one or in an archive.
+     */
+    private void backupArtifact(File backupNodeDirFile, String artifactRelativePath, Reader artifactReader) throws IOException {
+        Writer backupWriter = new OutputStreamWriter(new FileOutputStream(backupNodeDirFile.getAbsolutePath() + File.separator + Main.encodeFile(artifactRelativePath)), BACKUP_CHARSET);
+        try {
+            IOUtils.copy(artifactReader, backupWriter);
+        } finally {
+            IOUtils.closeQuietly(backupWriter);
+        }
+    }
+
+    /**
+     * Download the node artifacts matching the toolArgs.artifactsGlobs as zip archives, one archive for each glob,
+     * and process the archive entries while they are read, instead of requesting each artifact.
+     * The processed artifacts relative paths are added to @processedArtifacts.
+     *
+     * @return false if an archive could not be downloaded, so the rest of the artifacts need to be requested one by one
+     */
+    private boolean processArtifactsArchives(String artifactUrlPrefix, File backupNodeDirFile, Set<String> processedArtifacts) {
+        for (String glob : toolArgs.artifactsGlobs) {
+            String archiveUrl = JenkinsApi.getArtifactsArchiveUrl(artifactUrlPrefix, glob);
+            CloseableHttpResponse response = null;
+            try {
+                response = Main.getUrlHttpResponse(archiveUrl, toolArgs.username, toolArgs.password);
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode == HttpStatus.SC_NOT_FOUND) {
+                    // there aren't artifacts matching the glob
                     continue;
                 }
+                if (statusCode != HttpStatus.SC_OK || response.getEntity() == null) {
+                    System.err.println("Got HTTP status " + statusCode + " for artifacts archive URL " + archiveUrl + ", the artifacts are requested one by one.");
+                    return false;
+                }
+                ZipInputStream archiveStream = new ZipInputStream(response.getEntity().getContent());
+                ZipEntry entry;
+                while ((entry = archiveStream.getNextEntry()) != null) {
+                    // the entries are in a directory named like the archive
+                    String artifactRelativePath = entry.getName().substring(entry.getName().indexOf('/') + 1);
+                    if (entry.isDirectory() || processedArtifacts.contains(artifactRelativePath) || !toolArgs.filterEngine.matchesArtifact(artifactRelativePath)) {
+                        continue;
+                    }
+                    // the entry stream is closed by getNextEntry(), not by the artifact readers
+                    InputStream entryStream = new CloseShieldInputStream(archiveStream);
+                    RegexBudget.start(toolArgs.regexTimeoutSeconds);
+                    if (submitCachedReport(artifactRelativePath, FINISHED_BUILD_ARTIFACT_VERSION)) {
+                        processedArtifacts.add(artifactRelativePath);
+                        continue;
+                    }
+                    Reader entryReader = new InputStreamReader(entryStream, ARCHIVE_ENTRY_CHARSET);
+                    if (toolArgs.backupJob) {
+                        backupArtifact(backupNodeDirFile, artifactRelativePath, entryReader);
+                    } else {
+                        processArtifact(artifactRelativePath, entryReader, FINISHED_BUILD_ARTIFACT_VERSION);
+                    }
+                    processedArtifacts.add(artifactRelativePath);
+                }
+            } catch (IOException e) {
+                System.err.println("Got exception when getting the artifacts archive URL ".concat(archiveUrl).concat(", the artifacts are requested one by one: ").concat(e.toString()));
+                return false;
+            } finally {
+                IOUtils.closeQuietly(response);
             }
-            if (toolArgs.backupJob) {
-                if (!useBackup) {
-                    FileUtils.writeStringToFile(new File(backupNodeDirFile.getAbsolutePath() + File.separator + Main.encodeFile(artifactRelativePath)), artifactFileContent, Charset.defaultCharset());
+        }
+        return true;
+    }
+
+    /**
+     * Search the @searchedText in the @artifactFile from the backup or the disk cache, encoded with @charset,
+     * or submit its content for parsing if it is a JUnit report. The searched file is memory mapped if possible, see MultiPatternSearch,
+     * and the large files are searched in parallel chunks, see ParallelFileSearch, unless the matches lines are recorded.
+     *
+     * @param artifactVersion the version of the artifact content for its parsed JUnit report, see submitCachedReport()
+     */
+    private void processArtifactFile(String artifactRelativePath, File artifactFile, Charset charset, String artifactVersion) throws IOException {
+        if (!isJUnitReportsMode() && toolArgs.maxMatchesPerArtifact <= 0) {
+            try {
+                Set<String> foundPatterns = toolArgs.parallelFileSearch != null && toolArgs.parallelFileSearch.isParallelFile(artifactFile, charset)
+                        ? toolArgs.parallelFileSearch.find(artifactFile, charset, toolArgs.patternsSearch) : toolArgs.patternsSearch.find(artifactFile, charset);
+                for (String patternName : foundPatterns) {
+                    matchedArtifacts.put(patternName, artifactRelativePath);
                 }
-                continue;
+            } catch (RegexBudget.BudgetExceededException e) {
+                addTimedOutArtifact(artifactRelativePath, e);
             }
-            if (toolArgs.searchInJUnitReports || toolArgs.groupTestsFailures || toolArgs.showTestsDifferences || toolArgs.computeStabilityList) {
-                FailuresMatchResult failuresMatchResult = Main.matchJUnitReportFailures(artifactFileContent, buildNumber, nodeUrl, toolArgs);
-                matchedFailedTests.addAll(failuresMatchResult.matchedFailedTests);
-                testsFailures.putAll(failuresMatchResult.testsFailures);
-                testsStatus.putAll(failuresMatchResult.testsStatus);
-                continue;
+            return;
+        }
+        Reader artifactReader = new InputStreamReader(new FileInputStream(artifactFile), charset);
+        try {
+            processArtifact(artifactRelativePath, artifactReader, artifactVersion);
+        } finally {
+            IOUtils.closeQuietly(artifactReader);
+        }
+    }
+
+    /**
+     * @return true if the artifacts are parsed as JUnit reports, instead of searching the @searchedText in their content
+     */
+    private boolean isJUnitReportsMode() {
+        return toolArgs.searchInJUnitReports || toolArgs.groupTestsFailures || toolArgs.showTestsDifferences || toolArgs.computeStabilityList;
+    }
+
+    /**
+     * @return true if the JUnit reports parsed by ArtifactParser are saved in the disk cache, like the artifacts of the finished builds
+     */
+    private boolean cachesParsedReports() {
+        return isJUnitReportsMode() && toolArgs.diskResponseCache != null && (useBackup || finishedBuild) && !toolArgs.backupJob;
+    }
+
+    /**
+     * Submit the JUnit report @artifactRelativePath for matching if it was parsed by a previous run, without reading it again.
+     *
+     * @param artifactVersion the version of the artifact content the report was parsed from, the size and modification time
+     *                        of a backup file, or FINISHED_BUILD_ARTIFACT_VERSION for the artifacts of the finished builds which don't change
+     * @return false if the report is not cached
+     */
+    private boolean submitCachedReport(String artifactRelativePath, String artifactVersion) {
+        if (!cachesParsedReports()) {
+            return false;
+        }
+        ParsedJUnitReport parsedReport = ParsedJUnitReport.getCached(toolArgs.diskResponseCache, buildNumber, nodeUrl, artifactRelativePath, artifactVersion);
+        if (parsedReport == null) {
+            return false;
+        }
+        parsedArtifacts.add(parserExecutorService.submit(new ArtifactParser(toolArgs, buildNumber, nodeUrl, artifactRelativePath, parsedReport)));
+        return true;
+    }
+
+    /**
+     * Search the @searchedText in the artifact content while it is read from @artifactReader,
+     * or submit the artifact content for parsing if it is a JUnit report.
+     * The lines where the patterns are found are saved in matchLocations, if toolArgs.maxMatchesPerArtifact > 0.
+     *
+     * @param artifactVersion the version of the artifact content for its parsed JUnit report, see submitCachedReport()
+     */
+    private void processArtifact(String artifactRelativePath, Reader artifactReader, String artifactVersion) throws IOException {
+        if (isJUnitReportsMode()) {
+            parsedArtifacts.add(parserExecutorService.submit(new ArtifactParser(toolArgs, buildNumber, nodeUrl, artifactRelativePath, IOUtils.toString(artifactReader),
+                    cachesParsedReports() ? artifactVersion : null)));
+            return;
+        }
+        try {
+            if (toolArgs.maxMatchesPerArtifact > 0) {
+                MatchLocator matchLocator = new MatchLocator(artifactReader, toolArgs.patternsSearch, toolArgs.matchContextLines, toolArgs.maxMatchesPerArtifact);
+                Set<String> foundPatterns = toolArgs.patternsSearch.find(matchLocator);
+                // the search ends when all the patterns are found, the rest of the artifact is read only for the next matches
+                matchLocator.readRemainingMatches();
+                matchLocations.putAll(artifactRelativePath, matchLocator.getMatchLocations(foundPatterns));
+                for (String patternName : foundPatterns) {
+                    matchedArtifacts.put(patternName, artifactRelativePath);
+                }
+                return;
             }
-            if (Main.findSearchedTextInContent(toolArgs.searchedText, artifactFileContent)) {
-                matchedArtifacts.add(artifactRelativePath);
+            for (String patternName : toolArgs.patternsSearch.find(artifactReader)) {
+                matchedArtifacts.put(patternName, artifactRelativePath);
             }
+        } catch (RegexBudget.BudgetExceededException e) {
+            addTimedOutArtifact(artifactRelativePath, e);
+        }
+    }
+
+    /**
+     * Flag the artifact whose search spent the time budget of the regular expressions, the run continues with the next artifacts.
+     */
+    private void addTimedOutArtifact(String artifactRelativePath, RegexBudget.BudgetExceededException e) {
+        System.err.println("Got timeout when searching the artifact ".concat(artifactRelativePath).concat(" of node ").concat(nodeUrl).concat(", it is not searched until the end: ").concat(e.getMessage()));
+        timedOutArtifacts.add(artifactRelativePath);
+    }
+
+    /**
+     * The reader of an artifact download, which records if the search read a part of the artifact.
+     */
+    private static class SearchedReader extends FilterReader {
+        boolean searched;
+
+        SearchedReader(Reader artifactReader) {
+            super(artifactReader);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            searched |= read >= 0;
+            return read;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int readCount = super.read(buffer, offset, length);
+            searched |= readCount > 0;
+            return readCount;
         }
     }
-}
\ No newline at end of file
+}
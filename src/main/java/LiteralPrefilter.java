@@ -0,0 +1,348 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The literal texts required by the searched regular expressions, found with the Boyer-Moore-Horspool algorithm
+ * before running the regular expression. A content without any of the literals cannot match, so the regular expression
+ * runs only on the windows containing one of them, starting near the first literal found.
+ */
+class LiteralPrefilter {
+    // the shorter literals skip too few chars to be faster than the regular expression
+    private static final int MIN_LITERAL_LENGTH = 3;
+    private static final int SHIFT_TABLE_SIZE = 256;
+    private static final String QUOTE_START = "\\Q";
+    private static final String QUOTE_END = "\\E";
+
+    private final List<String> literals = new ArrayList<>();
+    // the Horspool shifts for each literal, indexed by the low byte of the char, the chars with the same low byte share the smallest shift
+    private final List<int[]> shiftTables = new ArrayList<>();
+
+    private LiteralPrefilter(List<String> literals) {
+        for (String literal : literals) {
+            if (this.literals.contains(literal)) {
+                continue;
+            }
+            int[] shiftTable = new int[SHIFT_TABLE_SIZE];
+            for (int i = 0; i < SHIFT_TABLE_SIZE; i++) {
+                shiftTable[i] = literal.length();
+            }
+            for (int i = 0; i < literal.length() - 1; i++) {
+                shiftTable[literal.charAt(i) & 0xFF] = literal.length() - 1 - i;
+            }
+            this.literals.add(literal);
+            this.shiftTables.add(shiftTable);
+        }
+    }
+
+    /**
+     * @return the prefilter for the @alternatives regular expressions, one of them has to match,
+     * or null if an alternative doesn't require a literal long enough
+     */
+    static LiteralPrefilter create(List<String> alternatives) {
+        List<String> literals = getRequiredLiterals(alternatives);
+        return literals == null ? null : new LiteralPrefilter(literals);
+    }
+
+    /**
+     * @return the literal required by each of the @alternatives regular expressions,
+     * or null if an alternative doesn't require a literal long enough
+     */
+    static List<String> getRequiredLiterals(List<String> alternatives) {
+        if (alternatives == null || alternatives.isEmpty()) {
+            return null;
+        }
+        List<String> literals = new ArrayList<>();
+        for (String alternative : alternatives) {
+            String literal = getRequiredLiteral(alternative);
+            if (literal.length() < MIN_LITERAL_LENGTH) {
+                return null;
+            }
+            literals.add(literal);
+        }
+        return literals;
+    }
+
+    /**
+     * @return the index of the first literal found in @text from @fromIndex, or -1 if there isn't any
+     */
+    int indexIn(CharSequence text, int fromIndex) {
+        int firstIndex = -1;
+        for (int i = 0; i < literals.size(); i++) {
+            // a literal found after the first one doesn't change the result
+            int toIndex = firstIndex == -1 ? text.length() : Math.min(text.length(), firstIndex + literals.get(i).length());
+            int index = indexOf(text, fromIndex, toIndex, literals.get(i), shiftTables.get(i));
+            if (index != -1 && (firstIndex == -1 || index < firstIndex)) {
+                firstIndex = index;
+            }
+        }
+        return firstIndex;
+    }
+
+    /**
+     * @return true if one of the literals is in @text
+     */
+    boolean isIn(String text) {
+        for (String literal : literals) {
+            // String.indexOf() is an intrinsic, faster than Horspool on a String
+            if (text.contains(literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the index of @literal in @text between @fromIndex and @toIndex, with the Horspool @shiftTable, or -1 if it is not found
+     */
+    private static int indexOf(CharSequence text, int fromIndex, int toIndex, String literal, int[] shiftTable) {
+        int lastIndex = literal.length() - 1;
+        char lastChar = literal.charAt(lastIndex);
+        int position = fromIndex;
+        while (position + lastIndex < toIndex) {
+            char c = text.charAt(position + lastIndex);
+            if (c == lastChar) {
+                int i = lastIndex - 1;
+                while (i >= 0 && text.charAt(position + i) == literal.charAt(i)) {
+                    i--;
+                }
+                if (i < 0) {
+                    return position;
+                }
+            }
+            position += shiftTable[c & 0xFF];
+        }
+        return -1;
+    }
+
+    /**
+     * @return the longest literal text which is in any match of @regex, or "" if there isn't one.
+     * The groups, the chars classes, the escapes which are not a single char and the optional or repeated chars end a literal.
+     */
+    static String getRequiredLiteral(String regex) {
+        String longestLiteral = "";
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            int next = i + 1;
+            boolean isLiteral = false;
+            if (c == '\\') {
+                next = escapeEndIndex(regex, i);
+                if (next == -1) {
+                    break;
+                }
+                if (regex.startsWith(QUOTE_START, i)) {
+                    String quotedText = getQuotedText(regex, i);
+                    if (!quotedText.isEmpty()) {
+                        // a quantifier after the quote repeats only its last char
+                        literal.append(quotedText, 0, quotedText.length() - 1);
+                        c = quotedText.charAt(quotedText.length() - 1);
+                        isLiteral = true;
+                    }
+                } else {
+                    int escapedChar = getEscapedChar(regex, i, next);
+                    // a high surrogate is repeated with the low surrogate after it
+                    isLiteral = escapedChar != -1 && !Character.isHighSurrogate((char) escapedChar);
+                    c = (char) escapedChar;
+                }
+            } else if (c == '(') {
+                int closeIndex = TextSearch.closingParenthesisIndex(regex, i);
+                if (closeIndex == -1) {
+                    break;
+                }
+                next = closeIndex + 1;
+            } else if (c == '[') {
+                next = charClassEndIndex(regex, i);
+                if (next == -1) {
+                    break;
+                }
+            } else {
+                isLiteral = ".^$|)*+?{".indexOf(c) == -1;
+            }
+            char quantifier = next < regex.length() ? regex.charAt(next) : 0;
+            if (isLiteral && quantifier != '*' && quantifier != '?' && quantifier != '{') {
+                literal.append(c);
+            }
+            if (!isLiteral || quantifier == '*' || quantifier == '?' || quantifier == '{' || quantifier == '+') {
+                // a repeated char is required once, but the next chars are not after it
+                longestLiteral = literal.length() > longestLiteral.length() ? literal.toString() : longestLiteral;
+                literal.setLength(0);
+            }
+            if (quantifier == '*' || quantifier == '+' || quantifier == '?') {
+                next++;
+                if (next < regex.length() && (regex.charAt(next) == '?' || regex.charAt(next) == '+')) {
+                    // lazy or possessive quantifier
+                    next++;
+                }
+            } else if (quantifier == '{') {
+                next = regex.indexOf('}', next) + 1;
+                if (next == 0) {
+                    break;
+                }
+            }
+            i = next - 1;
+        }
+        return literal.length() > longestLiteral.length() ? literal.toString() : longestLiteral;
+    }
+
+    /**
+     * @return the text matched by @regex if it is a literal text, with the escaped chars unescaped, or null if it isn't one
+     */
+    static String getWholeLiteral(String regex) {
+        StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                int next = escapeEndIndex(regex, i);
+                if (next == -1) {
+                    return null;
+                }
+                if (regex.startsWith(QUOTE_START, i)) {
+                    literal.append(getQuotedText(regex, i));
+                } else {
+                    int escapedChar = getEscapedChar(regex, i, next);
+                    if (escapedChar == -1) {
+                        return null;
+                    }
+                    literal.append((char) escapedChar);
+                }
+                i = next - 1;
+                continue;
+            } else if (".^$|()[]*+?{".indexOf(c) != -1) {
+                return null;
+            }
+            literal.append(c);
+        }
+        return literal.toString();
+    }
+
+    /**
+     * @return the index after the escape starting with the "\" at @escapeIndex of @regex, e.g. after "\x41", "\p{Alpha}"
+     * or "\Q...\E", or -1 if the escape is not complete
+     */
+    private static int escapeEndIndex(String regex, int escapeIndex) {
+        int index = escapeIndex + 1;
+        if (index >= regex.length()) {
+            return -1;
+        }
+        char c = regex.charAt(index++);
+        switch (c) {
+            case 'Q':
+                int quoteEnd = regex.indexOf(QUOTE_END, index);
+                // the quote goes until the end of the regular expression if it is not ended
+                return quoteEnd == -1 ? regex.length() : quoteEnd + QUOTE_END.length();
+            case 'x':
+                if (index < regex.length() && regex.charAt(index) == '{') {
+                    int closeIndex = regex.indexOf('}', index);
+                    return closeIndex == -1 ? -1 : closeIndex + 1;
+                }
+                return index + 2 <= regex.length() ? index + 2 : -1;
+            case 'u':
+                return index + 4 <= regex.length() ? index + 4 : -1;
+            case 'c':
+                return index < regex.length() ? index + 1 : -1;
+            case '0':
+                // up to 3 octal digits, the first of 3 digits being at most 3
+                int maxEnd = Math.min(regex.length(), index + (index < regex.length() && regex.charAt(index) <= '3' ? 3 : 2));
+                int end = index;
+                while (end < maxEnd && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') {
+                    end++;
+                }
+                return end;
+            case 'p':
+            case 'P':
+            case 'N':
+                if (index < regex.length() && regex.charAt(index) == '{') {
+                    int closeIndex = regex.indexOf('}', index);
+                    return closeIndex == -1 ? -1 : closeIndex + 1;
+                }
+                return index + 1 <= regex.length() ? index + 1 : -1;
+            case 'k':
+                int nameEnd = regex.indexOf('>', index);
+                return nameEnd == -1 ? -1 : nameEnd + 1;
+            default:
+                if (c >= '1' && c <= '9') {
+                    // a back reference, its other digits are skipped
+                    while (index < regex.length() && Character.isDigit(regex.charAt(index))) {
+                        index++;
+                    }
+                }
+                return index;
+        }
+    }
+
+    /**
+     * @return the char matched by the escape from @escapeIndex to @endIndex of @regex, or -1 if it isn't a single char,
+     * like the chars classes, the boundary matchers, the back references and the supplementary code points
+     */
+    private static int getEscapedChar(String regex, int escapeIndex, int endIndex) {
+        char c = regex.charAt(escapeIndex + 1);
+        String value = regex.substring(escapeIndex + 2, endIndex);
+        try {
+            switch (c) {
+                case 'x':
+                    int codePoint = Integer.parseInt(value.startsWith("{") ? value.substring(1, value.length() - 1) : value, 16);
+                    return codePoint <= Character.MAX_VALUE ? codePoint : -1;
+                case 'u':
+                    return Integer.parseInt(value, 16);
+                case '0':
+                    return value.isEmpty() ? -1 : Integer.parseInt(value, 8);
+                case 'c':
+                    return value.charAt(0) ^ 64;
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                case 'a':
+                    return '\u0007';
+                case 'e':
+                    return '\u001B';
+                default:
+                    // the other escaped letters and digits are chars classes, back references or boundary matchers
+                    return Character.isLetterOrDigit(c) ? -1 : c;
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the chars quoted by the "\Q" at @quoteIndex of @regex, until the "\E" or the end of @regex
+     */
+    private static String getQuotedText(String regex, int quoteIndex) {
+        int start = quoteIndex + QUOTE_START.length();
+        int end = regex.indexOf(QUOTE_END, start);
+        return regex.substring(start, end == -1 ? regex.length() : end);
+    }
+
+    /**
+     * @return the index after the "]" closing the chars class opened at @openIndex in @regex, or -1 if there isn't one
+     */
+    private static int charClassEndIndex(String regex, int openIndex) {
+        int depth = 0;
+        for (int i = openIndex; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+                // a "]" right after "[" or "[^" is a char of the class
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+}
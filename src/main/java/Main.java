@@ -1,12 +1,14 @@
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
 import com.jayway.jsonpath.Option;
 import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -15,11 +17,14 @@ import java.net.URL;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -28,39 +33,26 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Pattern;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.map.HashedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.apache.http.HttpHost;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.AuthCache;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpClient;
+import org.apache.http.ParseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.impl.auth.BasicScheme;
-import org.apache.http.impl.client.BasicAuthCache;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpClients;
+import org.apache.http.entity.ContentType;
 import org.apache.http.util.EntityUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import static org.apache.commons.lang3.math.NumberUtils.min;
@@ -74,167 +66,80 @@ import static org.apache.commons.lang3.math.NumberUtils.min;
 public class Main {
 
     private static final String runsNumberUrlJsonPath = "$.runs[?(@.number == %d)].url";
+    private static final String buildingJsonPath = "$.building";
     private static final String KEYS_SEPARATOR = "#";
     static final String artifactsRelativePathJsonPath = "$.artifacts[*].relativePath";
-    static final String buildsNumberJsonPath = "$.builds[*].number";
-    static final String timestampJsonPath = "$.timestamp";
-    static final String buildsNumberUrlJsonPath = "$.builds[?(@.number == %d)].url";
-    static final String buildParamsJsonPath = "$.actions[*].parameters[*]";
+    static final String artifactsFileSizeJsonPath = "$.artifacts[*].fileSize";
     private static Map<String, String> testsIssuesMap = new HashMap<>();
 
-    static HttpResponse getUrlHttpResponse(HttpGet httpGet, String username, String password) throws IOException {
-        URI uri = httpGet.getURI();
-        if (username != null) {
-            // authenticate
-            HttpHost host = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
-            CredentialsProvider credsProvider = new BasicCredentialsProvider();
-            credsProvider.setCredentials(new AuthScope(uri.getHost(), uri.getPort()), new UsernamePasswordCredentials(username, password));
-            // Create AuthCache instance
-            AuthCache authCache = new BasicAuthCache();
-            // Generate BASIC scheme object and add it to the local auth cache
-            BasicScheme basicAuth = new BasicScheme();
-            authCache.put(host, basicAuth);
-            CloseableHttpClient httpClient = HttpClients.custom().setDefaultCredentialsProvider(credsProvider).build();
-            // Add AuthCache to the execution context
-            HttpClientContext localContext = HttpClientContext.create();
-            localContext.setAuthCache(authCache);
-            HttpResponse response = httpClient.execute(host, httpGet, localContext);
-            return response;
-        }
-
-        HttpClient httpClient = HttpClientBuilder.create().build();
-        HttpResponse response = httpClient.execute(httpGet);
-        return response;
+    /**
+     * @return the response for @httpGet, sent when the RequestGovernor allows it and retried if it fails
+     */
+    static CloseableHttpResponse getUrlHttpResponse(HttpGet httpGet, String username, String password) throws IOException {
+        return RequestGovernor.execute(httpGet, () -> HttpClientPool.getHttpClient().execute(httpGet, HttpClientPool.createContext(httpGet.getURI(), username, password)));
     }
 
     static String getUrlResponse(HttpGet httpGet, String username, String password) throws IOException {
         if (username == null) {
             System.out.println("Get response for url: " + httpGet.getURI().toURL().toString());
-            return IOUtils.toString(new InputStreamReader(httpGet.getURI().toURL().openStream()));
         }
-        HttpResponse response = getUrlHttpResponse( httpGet, username, password);
-        return EntityUtils.toString(response.getEntity());
-    }
-
-    static String getUrlResponse(String urlString, String username, String password) throws IOException {
-        return getUrlResponse(new HttpGet(URI.create(urlString)), username, password);
+        HttpResponse response = getUrlHttpResponse(httpGet, username, password);
+        // reading the entity until the end releases the connection back to the pool
+        return EntityUtils.toString(response.getEntity(), Charset.defaultCharset());
     }
 
     /**
-     *  Replace the prefix @prefixUrl from url with @newPrefixUrl
+     * @return a Reader for the @response content, decoding it with the response charset or the default charset.
+     * Closing the response before reading all the content discards the connection instead of reading the rest of it.
      */
-    static String replaceUrlPrefix(String url, String prefixUrl, String newPrefixUrl) throws MalformedURLException {
-        URL urlObj = new URL(url);
-        URL prefixUrlObj = new URL(prefixUrl);
-
-        if (urlObj.getPort() != prefixUrlObj.getPort()) {
-            url = url.replace(":".concat(String.valueOf(urlObj.getPort())).concat("/"), ":".concat(String.valueOf(prefixUrlObj.getPort())).concat("/"));
+    static Reader getResponseReader(HttpResponse response) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return new StringReader("");
         }
-
-        return url.replace(prefixUrl, newPrefixUrl);
+        return new InputStreamReader(entity.getContent(), getResponseCharset(response));
     }
 
     /**
-     * @return true if @artifactUrl matches regular expressions @artifactFilters filters separated by comma ","
+     * @return the charset of the @response content type, or the default charset if it doesn't have one
      */
-    static Boolean artifactUrlMatchesFilters(String artifactUrl, String artifactFilters) {
-        String[] filters = artifactFilters.split(",");
-        if ((filters.length == 0) || (filters[0].isEmpty())) {
-            return true;
-        }
-        for (String filter : filters) {
-            if (artifactUrl.matches(filter)) {
-                return true;
-            }
+    static Charset getResponseCharset(HttpResponse response) {
+        Charset charset = null;
+        try {
+            ContentType contentType = response.getEntity() == null ? null : ContentType.get(response.getEntity());
+            charset = contentType == null ? null : contentType.getCharset();
+        } catch (ParseException | UnsupportedCharsetException e) {
+            System.err.println("Got exception when getting the response charset: " + e);
         }
-        return false;
+        return charset == null ? Charset.defaultCharset() : charset;
     }
 
-    /**
-     * @return true if @buildParams matches all parameter values from @buildParamsFilter map
-     */
-    private static boolean matchesBuildParams(List<Map<String, String>> buildParams, Map<String, String> buildParamsFilter) {
-        boolean matches = true;
-        for (Map.Entry<String, String> buildParamFilter: buildParamsFilter.entrySet()) {
-            String key = buildParamFilter.getKey();
-            String value = buildParamFilter.getValue();
-            boolean found = false;
-            for (Map<String, String> buildParam: buildParams) {
-                if (buildParam.get("name").equals(key) && value.equals(buildParam.get("value"))) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                matches = false;
-                break;
-            }
+    static CloseableHttpResponse getUrlHttpResponse(String urlString, String username, String password) throws IOException {
+        if (username == null) {
+            System.out.println("Get response for url: " + urlString);
         }
-        return matches;
+        return getUrlHttpResponse(new HttpGet(URI.create(urlString)), username, password);
     }
 
-    static Boolean findSearchedTextInContent(String searchedText, String content) {
-        // replaces end of line chars with empty to be able to match all file contain with regular expression
-        return (searchedText.isEmpty() || content.replaceAll("\\r\\n", "").replaceAll("\\n", "").matches(searchedText));
+    /**
+     * @return the response for @urlString, downloaded only once in the current run, see UrlResponseCache
+     */
+    static String getUrlResponse(String urlString, String username, String password) throws IOException {
+        return UrlResponseCache.get(urlString, username, () -> getUrlResponse(new HttpGet(URI.create(urlString)), username, password));
     }
 
     /**
-     * Encodes "\n" characters between <failure...</failure> with "&#10;", so those won't be replaced with space char when parsing the xml document
-     *
-     * @param xml the xml as String, we need to transform
-     * @return a new xml
+     *  Replace the prefix @prefixUrl from url with @newPrefixUrl
      */
-    private static String encodeNewLineCharInFailureElement(String xml, String failureTag, String failureEndTag) {
-        StringBuilder newXml = new StringBuilder("");
-        boolean replace = false;
-        Integer maxNewLinesToReplace = 10;
-        Integer replacedNewLinesCount = 0;
-        while (!xml.isEmpty()) {
-            int newLinePosition = xml.indexOf(failureTag);
-            if (newLinePosition == -1) {
-                newXml.append(xml);
-                break;
-            }
-            StringBuilder newLine = new StringBuilder(xml.substring(0, newLinePosition));
-            newXml.append(newLine);
-            xml = xml.substring(newLinePosition);
-            boolean finishedReplace = false;
-            while (!finishedReplace) {
-                newLinePosition = xml.indexOf("\n");
-                if (newLinePosition == -1) {
-                    newXml.append(xml);
-                    return newXml.toString();
-                }
-                newLine = new StringBuilder(xml.substring(0, newLinePosition));
-                if (newLine.indexOf(failureEndTag) == -1 && replacedNewLinesCount < maxNewLinesToReplace) {
-                    if (newLine.indexOf(failureTag) != -1) {
-                        newLine.append("&#10;");
-                        replace = true;
-                        replacedNewLinesCount = 1;
-                    } else if (replace) {
-                        newLine.append("&#10;");
-                        replacedNewLinesCount++;
-                    } else {
-                        newLine.append("\n");
-                    }
-                } else {
-                    replace = false;
-                    replacedNewLinesCount = 0;
-                    newLine.append("\n");
-                    // go to the next failure if we replaced the maximum new lines
-                    finishedReplace = true;
-                }
-                newXml.append(newLine);
-                xml = xml.substring(newLinePosition + 1);
-            }
+    static String replaceUrlPrefix(String url, String prefixUrl, String newPrefixUrl) throws MalformedURLException {
+        URL urlObj = new URL(url);
+        URL prefixUrlObj = new URL(prefixUrl);
+
+        if (urlObj.getPort() != prefixUrlObj.getPort()) {
+            url = url.replace(":".concat(String.valueOf(urlObj.getPort())).concat("/"), ":".concat(String.valueOf(prefixUrlObj.getPort())).concat("/"));
         }
-        return newXml.toString();
-    }
 
-    private static String encodeNewLineCharInFailureElements(String xml) {
-        String newXml = encodeNewLineCharInFailureElement(xml, "<failure message=", "</failure>");
-        newXml = encodeNewLineCharInFailureElement(newXml, "<error message=", "</error>");
-        return newXml;
+        return url.replace(prefixUrl, newPrefixUrl);
     }
 
     private static String buildTestReportLink(String node, String test) {
@@ -254,10 +159,28 @@ public class Main {
         return firstXLines;
     }
 
+    /**
+     * @return the first 2 lines of the stacktrace and the first line of the message of a failure, to compare it with the other failures
+     */
+    private static String getFailureToCompare(String message, String stacktrace) {
+        String[] stacktraceTokens = stacktrace.replace("&#10;", "\n").split("StackTrace:\n");
+        if (stacktraceTokens.length > 1) {
+            stacktrace = stacktraceTokens[stacktraceTokens.length - 1].trim();
+        } else {
+            stacktraceTokens = stacktrace.replace("&#10;", "\n").split("Stack Trace:\n");
+            if (stacktraceTokens.length > 1) {
+                stacktrace = stacktraceTokens[stacktraceTokens.length - 1].trim();
+            }
+        }
+        stacktrace = getFirstXLines(stacktrace, 2);
+        stacktrace = stacktrace.trim().isEmpty() ? stacktrace : stacktrace.concat(": ");
+        return stacktrace.concat(getFirstXLines(message, 1));
+    }
+
     /**
      * Matches the @searchedText in each test failure for a test and return a list with the Jenkins links to the failed tests reports
      *
-     * @param failureNodes the xml failure/error nodes for a test case element
+     * @param failures     the failure/error/skipped elements of a test case element
      * @param testUrl      the test url
      * @param buildNumber  build number
      * @param nodeUrl      node URL
@@ -266,35 +189,22 @@ public class Main {
      *                     toolArgs.searchedText the regular expression to match with the failure message
      * @return a list with the Jenkins links to the failed tests reports
      */
-    private static FailuresMatchResult matchTestCaseFailures(NodeList failureNodes, String testUrl, String testName, String shortTestName, String buildNumber, String nodeUrl, ToolArgs toolArgs) {
+    private static FailuresMatchResult matchTestCaseFailures(List<ParsedJUnitReport.ParsedFailure> failures, String testUrl, String testName, String shortTestName, String buildNumber, String nodeUrl, ToolArgs toolArgs) {
         List<String> matchedFailedTests = new ArrayList<>();
         ArrayListValuedHashMap<String, TestFailure> testsFailures = new ArrayListValuedHashMap<>();
-        if (failureNodes.getLength() > 0 && toolArgs.stableReport != null) {
+        if (!failures.isEmpty() && toolArgs.stableReport != null) {
             if (toolArgs.stableReport && !toolArgs.stabilityListParser.getStableTests().contains(testName) && toolArgs.stabilityListParser.getUnstableTests().contains(testName)
                 || !toolArgs.stableReport && !toolArgs.stabilityListParser.getUnstableTests().contains(testName) && toolArgs.stabilityListParser.getStableTests().contains(testName)) {
                 return new FailuresMatchResult(matchedFailedTests, testsFailures, null);
             }
         }
-        for (int failureNodeIndex = 0; failureNodeIndex < failureNodes.getLength(); failureNodeIndex++) {
-            Element failureElement = (Element) failureNodes.item(failureNodeIndex);
-            String message = failureElement.getAttribute("message");
-            if (toolArgs.searchInJUnitReports && Main.findSearchedTextInContent(toolArgs.searchedText, message)) {
+        for (ParsedJUnitReport.ParsedFailure failure : failures) {
+            String message = failure.message;
+            if (toolArgs.searchInJUnitReports && toolArgs.patternsSearch.matchesAny(message)) {
                 matchedFailedTests.add(testUrl);
             }
             if (toolArgs.groupTestsFailures || toolArgs.showTestsDifferences) {
-                String stacktrace = failureElement.getTextContent();
-                String[] stacktraceTokens = stacktrace.replace("&#10;", "\n").split("StackTrace:\n");
-                if (stacktraceTokens.length > 1) {
-                    stacktrace = stacktraceTokens[stacktraceTokens.length - 1].trim();
-                } else {
-                    stacktraceTokens = stacktrace.replace("&#10;", "\n").split("Stack Trace:\n");
-                    if (stacktraceTokens.length > 1) {
-                        stacktrace = stacktraceTokens[stacktraceTokens.length - 1].trim();
-                    }
-                }
-                stacktrace = getFirstXLines(stacktrace, 2);
-                stacktrace = stacktrace.trim().isEmpty() ? stacktrace : stacktrace.concat(": ");
-                String failureToCompare = stacktrace.concat(getFirstXLines(message, 1));
+                String failureToCompare = failure.failureToCompare;
                 testsFailures.put(testUrl, new TestFailure(buildNumber, nodeUrl, buildTestReportLink(nodeUrl, testUrl), testName, shortTestName, failureToCompare, failureToCompare.length() >= 250 ? failureToCompare.substring(0, 250) + " ..." : failureToCompare));
             }
         }
@@ -304,74 +214,98 @@ public class Main {
     /**
      * Matches the @searchedText in each test failure and return a list with the Jenkins links to the failed tests reports
      *
-     * @param jUnitReportXml the JUnit xml report as a String
-     * @param buildNumber    build number
-     * @param nodeUrl        node URL
-     * @param toolArgs:      toolArgs.searchInJUnitReports true if we search a regular expression in failure messages
-     *                       toolArgs.groupTestsFailures true if it groups failures based on stacktrace and failure message
-     *                       toolArgs.searchedText the regular expression to match with the failure message
+     * @param parsedReport the JUnit report parsed by parseJUnitReport()
+     * @param buildNumber  build number
+     * @param nodeUrl      node URL
+     * @param toolArgs:    toolArgs.searchInJUnitReports true if we search a regular expression in failure messages
+     *                     toolArgs.groupTestsFailures true if it groups failures based on stacktrace and failure message
+     *                     toolArgs.searchedText the regular expression to match with the failure message
      * @return a list with the Jenkins links to the failed tests reports
+     */
+    static FailuresMatchResult matchJUnitReportFailures(ParsedJUnitReport parsedReport, String buildNumber, String nodeUrl, ToolArgs toolArgs) {
+        List<String> matchedFailedTests = new ArrayList<>();
+        ArrayListValuedHashMap<String, TestFailure> testsFailures = new ArrayListValuedHashMap<>();
+        ArrayListValuedHashMap<String, TestStatus> testsStatus = new ArrayListValuedHashMap<>();
+        for (ParsedJUnitReport.ParsedTestCase testCase : parsedReport.testCases) {
+            String testName = testCase.getTestName();
+            String shortTestName = testCase.shortTestName;
+            String testUrl = testCase.testUrl;
+            FailuresMatchResult failuresMatchResult = matchTestCaseFailures(testCase.failures, testUrl, testName, shortTestName, buildNumber, nodeUrl, toolArgs);
+            matchedFailedTests.addAll(failuresMatchResult.matchedFailedTests);
+            testsFailures.putAll(failuresMatchResult.testsFailures);
+            FailuresMatchResult errorsMatchResult = matchTestCaseFailures(testCase.errors, testUrl, testName, shortTestName, buildNumber, nodeUrl, toolArgs);
+            matchedFailedTests.addAll(errorsMatchResult.matchedFailedTests);
+            FailuresMatchResult skippedMatchResult = matchTestCaseFailures(testCase.skipped, testUrl, testName, shortTestName, buildNumber, nodeUrl, toolArgs);
+            matchedFailedTests.addAll(skippedMatchResult.matchedFailedTests);
+            testsFailures.putAll(skippedMatchResult.testsFailures);
+            if (toolArgs.computeStabilityList) {
+                String stabilityTestName = testCase.className.concat("&").concat(shortTestName);
+                Boolean failedStatus = !testCase.failures.isEmpty() || !testCase.errors.isEmpty();
+                TestStatus testStatus = new TestStatus(Integer.parseInt(buildNumber), failedStatus);
+                testsStatus.put(stabilityTestName, testStatus);
+            }
+        }
+        return new FailuresMatchResult(matchedFailedTests, testsFailures, testsStatus);
+    }
+
+    /**
+     * Parse the testcase elements of a JUnit report and compute their tests urls, the duplicate tests urls are numbered in the order of the report.
+     *
+     * @param jUnitReportXml the JUnit xml report as a String
+     * @param readsTexts     true if the failures to compare are computed from the texts of the failures
+     * @return the parsed report, which doesn't depend on the matching arguments
      * @throws ParserConfigurationException
      * @throws IOException
      * @throws SAXException
+     * @throws XMLStreamException
      */
-    static FailuresMatchResult matchJUnitReportFailures(String jUnitReportXml, String buildNumber, String nodeUrl, ToolArgs toolArgs) throws ParserConfigurationException, IOException, SAXException {
-        List<String> matchedFailedTests = new ArrayList<>();
+    static ParsedJUnitReport parseJUnitReport(String jUnitReportXml, boolean readsTexts, ToolArgs toolArgs)
+            throws ParserConfigurationException, IOException, SAXException, XMLStreamException {
+        List<ParsedJUnitReport.ParsedTestCase> testCases = new ArrayList<>();
         Map<String, Integer> testsCount = new HashedMap<>();
-        ArrayListValuedHashMap<String, TestFailure> testsFailures = new ArrayListValuedHashMap<>();
-        ArrayListValuedHashMap<String, TestStatus> testsStatus = new ArrayListValuedHashMap<>();
         // if the JUnit report is empty we cannot parse it
         if (jUnitReportXml.isEmpty()) {
-            return new FailuresMatchResult(matchedFailedTests, testsFailures, testsStatus);
-        }
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        jUnitReportXml = encodeNewLineCharInFailureElements(jUnitReportXml);
-        Document doc = dBuilder.parse(new ByteArrayInputStream(jUnitReportXml.getBytes()));
-        doc.getDocumentElement().normalize();
-        NodeList testCasesList = doc.getElementsByTagName("testcase");
-        for (int testCaseIndex = 0; testCaseIndex < testCasesList.getLength(); testCaseIndex++) {
-            Node testCaseNode = testCasesList.item(testCaseIndex);
-            if (testCaseNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element testCaseElement = (Element) testCaseNode;
-                String shortTestName = testCaseElement.getAttribute("name");
-                String testName = testCaseElement.getAttribute("classname").concat(".").concat(shortTestName);
-                String[] classNameTokens  = testCaseElement.getAttribute("classname").split("\\.");
-                // the package name from url needs to remain with ".", the class name is delimited using "/"
-                String packageName = "";
-                for (int i = 0; i < classNameTokens.length - 1; i++) {
-                    packageName += classNameTokens[i].concat(".");
-                }
-                String testCaseClassname = testCaseElement.getAttribute("classname");
-                packageName = testCaseClassname.endsWith(".") ? packageName.concat(classNameTokens[classNameTokens.length - 1]).concat(".") : packageName;
-                packageName = packageName.length() > 0 ? new StringBuilder(packageName).deleteCharAt(packageName.length() - 1).toString() : packageName;
-                packageName = classNameTokens.length < 2 ? "(root)" : packageName;
-                String className = testCaseClassname.endsWith(".") ? "" : classNameTokens[classNameTokens.length - 1];
-                String testUrl = packageName.replaceAll("[:#/]", "_").concat("/").concat(className.replaceAll("[:#/<>]", "_").replace("\"", "%22")).concat("/").concat(shortTestName.replaceAll("[\\{\\}.:;+\\r\\n |\\\\()\\[\\]/,\"'&%*^<>@#=-]", "_"));
-                Integer testCount = testsCount.get(testUrl);
-                testCount = testCount == null ? 0 : testCount;
-                testsCount.put(testUrl, ++testCount);
-                testUrl = testCount < 2 ? testUrl : testUrl.concat("_").concat(String.valueOf(testCount));
-                NodeList failureNodes = testCaseElement.getElementsByTagName("failure");
-                FailuresMatchResult failuresMatchResult = matchTestCaseFailures(failureNodes, testUrl, testName, shortTestName, buildNumber, nodeUrl, toolArgs);
-                matchedFailedTests.addAll(failuresMatchResult.matchedFailedTests);
-                testsFailures.putAll(failuresMatchResult.testsFailures);
-                NodeList errorNodes = testCaseElement.getElementsByTagName("error");
-                FailuresMatchResult errorsMatchResult = matchTestCaseFailures(errorNodes, testUrl, testName, shortTestName, buildNumber, nodeUrl, toolArgs);
-                matchedFailedTests.addAll(errorsMatchResult.matchedFailedTests);
-                NodeList skippedNodes = testCaseElement.getElementsByTagName("skipped");
-                FailuresMatchResult skippedMatchResult = matchTestCaseFailures(skippedNodes, testUrl, testName, shortTestName, buildNumber, nodeUrl, toolArgs);
-                matchedFailedTests.addAll(skippedMatchResult.matchedFailedTests);
-                testsFailures.putAll(skippedMatchResult.testsFailures);
-                if (toolArgs.computeStabilityList) {
-                    String stabilityTestName = testCaseElement.getAttribute("classname").concat("&").concat(shortTestName);
-                    Boolean failedStatus = failureNodes.getLength() != 0 || errorNodes.getLength() != 0;
-                    TestStatus testStatus = new TestStatus(Integer.parseInt(buildNumber), failedStatus);
-                    testsStatus.put(stabilityTestName, testStatus);
-                }
+            return new ParsedJUnitReport(testCases);
+        }
+        Consumer<TestCaseElement> testCaseParser = testCase -> {
+            String shortTestName = testCase.name;
+            String[] classNameTokens  = testCase.className.split("\\.");
+            // the package name from url needs to remain with ".", the class name is delimited using "/"
+            String packageName = "";
+            for (int i = 0; i < classNameTokens.length - 1; i++) {
+                packageName += classNameTokens[i].concat(".");
             }
+            String testCaseClassname = testCase.className;
+            packageName = testCaseClassname.endsWith(".") ? packageName.concat(classNameTokens[classNameTokens.length - 1]).concat(".") : packageName;
+            packageName = packageName.length() > 0 ? new StringBuilder(packageName).deleteCharAt(packageName.length() - 1).toString() : packageName;
+            packageName = classNameTokens.length < 2 ? "(root)" : packageName;
+            String className = testCaseClassname.endsWith(".") ? "" : classNameTokens[classNameTokens.length - 1];
+            String testUrl = packageName.replaceAll("[:#/]", "_").concat("/").concat(className.replaceAll("[:#/<>]", "_").replace("\"", "%22")).concat("/").concat(shortTestName.replaceAll("[\\{\\}.:;+\\r\\n |\\\\()\\[\\]/,\"'&%*^<>@#=-]", "_"));
+            Integer testCount = testsCount.get(testUrl);
+            testCount = testCount == null ? 0 : testCount;
+            testsCount.put(testUrl, ++testCount);
+            testUrl = testCount < 2 ? testUrl : testUrl.concat("_").concat(String.valueOf(testCount));
+            boolean hasFailures = !testCase.failures.isEmpty() || !testCase.errors.isEmpty() || !testCase.skipped.isEmpty();
+            testCases.add(new ParsedJUnitReport.ParsedTestCase(testCase.className, shortTestName, hasFailures ? testUrl : null,
+                    parseFailures(testCase.failures, readsTexts), parseFailures(testCase.errors, readsTexts), parseFailures(testCase.skipped, readsTexts)));
+        };
+        // without the stability list only the testcase elements with failures are matched, so the others are not parsed
+        List<TestCaseElement> scannedTestCases = toolArgs.computeStabilityList || !JUnitReportParser.STAX_PARSER.equals(toolArgs.jUnitReportParser) ? null
+                : JUnitFailuresScanner.scan(jUnitReportXml, readsTexts);
+        if (scannedTestCases != null) {
+            scannedTestCases.forEach(testCaseParser);
+        } else {
+            JUnitReportParser.parse(jUnitReportXml, toolArgs.jUnitReportParser, readsTexts, testCaseParser);
         }
-        return new FailuresMatchResult(matchedFailedTests, testsFailures, testsStatus);
+        return new ParsedJUnitReport(testCases);
+    }
+
+    private static List<ParsedJUnitReport.ParsedFailure> parseFailures(List<TestCaseElement.FailureElement> failureElements, boolean readsTexts) {
+        List<ParsedJUnitReport.ParsedFailure> failures = new ArrayList<>(failureElements.size());
+        for (TestCaseElement.FailureElement failureElement : failureElements) {
+            failures.add(new ParsedJUnitReport.ParsedFailure(failureElement.message, readsTexts ? getFailureToCompare(failureElement.message, failureElement.text) : null));
+        }
+        return failures;
     }
 
     static String encodeFile(String file) throws UnsupportedEncodingException {
@@ -382,7 +316,7 @@ public class Main {
         return URLDecoder.decode(file, Charset.defaultCharset().name());
     }
 
-    private static Set<Integer> updatedBuildsAndGetBackupBuilds(Set<Integer> builds, List<Integer> lastNBuilds, Integer lastBuildsCount, String jobResponse, File backupJobDirFile, Boolean backupJob, Boolean useBackup, Integer backupRetention) {
+    private static Set<Integer> updatedBuildsAndGetBackupBuilds(Set<Integer> builds, List<Integer> lastNBuilds, Integer lastBuildsCount, BuildCatalog buildCatalog, File backupJobDirFile, Boolean backupJob, Boolean useBackup, Integer backupRetention) {
         Set<Integer> backupBuilds = new HashSet<>();
         List<Integer> allAvailableBackupBuilds = new ArrayList<>();
         if (!backupJob && useBackup) {
@@ -406,7 +340,7 @@ public class Main {
                 allAvailableBackupBuilds.remove(allAvailableBackupBuilds.size() - 1);
             }
         }
-        List<Integer> allAvailableBuildsList = JsonPath.read(jobResponse, buildsNumberJsonPath);
+        List<Integer> allAvailableBuildsList = buildCatalog.getBuildsNumbers();
         if (backupJob) {
             builds.clear();
             Set<Integer> allBuildsSet = new HashSet<>(allAvailableBuildsList);
@@ -449,59 +383,20 @@ public class Main {
         return backupBuilds;
     }
 
-    private static void computeBuilds(ToolArgs toolArgs, Set<Integer> excludedBuilds, Set<Integer> backupBuilds, String jobResponse) throws IOException {
+    private static void computeBuilds(ToolArgs toolArgs, Set<Integer> excludedBuilds, Set<Integer> backupBuilds, BuildCatalog buildCatalog) throws IOException {
         if (toolArgs.useBackup || toolArgs.backupJob || toolArgs.removeBackup) {
             Validate.notEmpty(toolArgs.backupPath, "backupPath parameter is empty!");
             toolArgs.backupJobDirFile = new File(toolArgs.backupPath + File.separator + encodeFile(toolArgs.jobUrl));
             toolArgs.backupJobDirFile.mkdirs();
         }
         List<Integer> lastNBuilds = new ArrayList<>();
-        try {
-            if (toolArgs.lastBuildsCount > 0) {
-                lastNBuilds = JsonPath.read(jobResponse, buildsNumberJsonPath);
-                lastNBuilds = lastNBuilds.subList(0, Math.min(toolArgs.lastBuildsCount, lastNBuilds.size()));
-            }
-
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Exception when parsing the job api response for URL " + toolArgs.jobUrl + " : " + jobResponse, e);
+        if (toolArgs.lastBuildsCount > 0) {
+            lastNBuilds = buildCatalog.getBuildsNumbers();
+            lastNBuilds = lastNBuilds.subList(0, Math.min(toolArgs.lastBuildsCount, lastNBuilds.size()));
         }
         toolArgs.builds.addAll(lastNBuilds);
         if (toolArgs.buildsFromLastXHours > 0 || !toolArgs.buildParamsFilter.isEmpty()) {
-            List<Integer> allAvailableBuildsList = JsonPath.read(jobResponse, buildsNumberJsonPath);
-            final int oneHour = 1000*60*60;
-            Set<Integer> validBuilds = new HashSet<>();
-            Long lastBuildTimestamp = null; // the timestamp until when to parse builds
-            for (Integer buildNumber : allAvailableBuildsList) {
-                String buildUrl = ((List<String>) JsonPath.read(jobResponse, String.format(buildsNumberUrlJsonPath, buildNumber))).get(0);
-                String buildApiResp;
-                try {
-                    buildApiResp = getUrlResponse(replaceUrlPrefix(buildUrl, toolArgs.jobUrl, toolArgs.newUrlPrefix).concat("/api/json"), toolArgs.username, toolArgs.password);
-                } catch (IOException e) {
-                    System.err.println("Got exception when getting API response for job build URL ".concat(buildUrl).concat(": ").concat(e.toString()));
-                    continue;
-                }
-                boolean isValidBuild = true;
-                if (toolArgs.buildsFromLastXHours > 0) {
-                    long timestamp = JsonPath.read(buildApiResp, timestampJsonPath);
-                    if (buildNumber.equals(excludedBuilds.iterator().next())) {
-                        lastBuildTimestamp = System.currentTimeMillis();
-                        if (toolArgs.previousBuildsOnly && !excludedBuilds.isEmpty()) {
-                            lastBuildTimestamp = timestamp;
-                        }
-                    }
-                    isValidBuild = lastBuildTimestamp != null && (lastBuildTimestamp - timestamp >=0) && ((lastBuildTimestamp - timestamp) / oneHour <= toolArgs.buildsFromLastXHours);
-                }
-                if (!isValidBuild) {
-                    continue;
-                }
-                if (!toolArgs.buildParamsFilter.isEmpty()) {
-                    List<Map<String, String>> buildParams = JsonPath.read(buildApiResp, buildParamsJsonPath);
-                    isValidBuild = matchesBuildParams(buildParams, toolArgs.buildParamsFilter);
-                }
-                if (isValidBuild) {
-                    validBuilds.add(buildNumber);
-                }
-            }
+            Set<Integer> validBuilds = computeValidBuilds(toolArgs, excludedBuilds, buildCatalog);
             if (toolArgs.builds.size() > 0) {
                 toolArgs.builds.retainAll(validBuilds);
             } else {
@@ -512,17 +407,162 @@ public class Main {
             toolArgs.lastBuildsCount = 0;
         }
         toolArgs.builds.removeAll(excludedBuilds);
-        backupBuilds.addAll(updatedBuildsAndGetBackupBuilds(toolArgs.builds, lastNBuilds, toolArgs.lastBuildsCount, jobResponse, toolArgs.backupJobDirFile, toolArgs.backupJob, toolArgs.useBackup, toolArgs.backupRetention));
+        backupBuilds.addAll(updatedBuildsAndGetBackupBuilds(toolArgs.builds, lastNBuilds, toolArgs.lastBuildsCount, buildCatalog, toolArgs.backupJobDirFile, toolArgs.backupJob, toolArgs.useBackup, toolArgs.backupRetention));
         List<Integer> sortedBuilds = new ArrayList<>(toolArgs.builds);
         sortedBuilds.sort(null);
         System.out.println("Parameter builds=" + sortedBuilds);
     }
 
-    private static Integer submitBuildNodes(CompletionService<JenkinsNodeArtifactsFilter> completionService, ToolArgs toolArgs, Set<Integer> excludedBuilds) throws IOException {
-        String apiJobUrl = replaceUrlPrefix(toolArgs.jobUrl, toolArgs.jobUrl, toolArgs.newUrlPrefix).concat("/api/json");
+    /**
+     * @return the builds from @buildCatalog started in the last @toolArgs.buildsFromLastXHours hours and matching @toolArgs.buildParamsFilter.
+     * The hours are counted back from now, or from the excluded reference build if @toolArgs.previousBuildsOnly, and the builds newer
+     * than the excluded reference build are not valid.
+     * The builds are scanned from the newest to the oldest one, stopping at the first build older than the time window.
+     *
+     * @throws IOException if the timestamp of a build needed to find the time window end cannot be got
+     */
+    private static Set<Integer> computeValidBuilds(ToolArgs toolArgs, Set<Integer> excludedBuilds, BuildCatalog buildCatalog) throws IOException {
+        // the builds details requests of all the steps share the threads
+        int threadPoolSize = toolArgs.ioThreadPoolSize > 0 ? toolArgs.ioThreadPoolSize : Runtime.getRuntime().availableProcessors();
+        ExecutorService detailsExecutorService = Executors.newFixedThreadPool(threadPoolSize);
+        try {
+            return computeValidBuilds(toolArgs, excludedBuilds, buildCatalog, detailsExecutorService);
+        } finally {
+            detailsExecutorService.shutdownNow();
+        }
+    }
+
+    private static Set<Integer> computeValidBuilds(ToolArgs toolArgs, Set<Integer> excludedBuilds, BuildCatalog buildCatalog, ExecutorService detailsExecutorService) throws IOException {
+        List<Integer> buildsNumbers = buildCatalog.getBuildsNumbersDescending();
+        int fromIndex = 0;
+        int toIndex = buildsNumbers.size();
+        long referenceTimestamp = System.currentTimeMillis();
+        if (toolArgs.buildsFromLastXHours > 0) {
+            if (!excludedBuilds.isEmpty()) {
+                Integer referenceBuild = excludedBuilds.iterator().next();
+                fromIndex = buildsNumbers.indexOf(referenceBuild);
+                if (fromIndex < 0) {
+                    return new HashSet<>();
+                }
+                if (toolArgs.previousBuildsOnly) {
+                    referenceTimestamp = getBuildTimestamp(toolArgs, buildCatalog, referenceBuild, detailsExecutorService);
+                }
+            }
+            toIndex = getTimeWindowEndIndex(toolArgs, buildCatalog, buildsNumbers, fromIndex, referenceTimestamp, detailsExecutorService);
+        }
+        List<Integer> candidateBuilds = buildsNumbers.subList(fromIndex, toIndex);
+        if (!toolArgs.buildParamsFilter.isEmpty()) {
+            fetchBuildsDetails(toolArgs, buildCatalog, candidateBuilds, detailsExecutorService);
+        }
+        Set<Integer> validBuilds = new HashSet<>();
+        for (Integer buildNumber : candidateBuilds) {
+            if (toolArgs.buildsFromLastXHours > 0 && referenceTimestamp - buildCatalog.getTimestamp(buildNumber) < 0) {
+                // started after the reference build
+                continue;
+            }
+            if (toolArgs.buildParamsFilter.isEmpty() || FilterEngine.matchesBuildParams(buildCatalog.getParams(buildNumber), toolArgs.buildParamsFilter)) {
+                validBuilds.add(buildNumber);
+            }
+        }
+        return validBuilds;
+    }
+
+    /**
+     * @return the index in @buildsNumbers of the first build older than the time window, starting the search from @fromIndex.
+     * If the job response doesn't contain the builds timestamps, the index is binary searched, requesting only the timestamps
+     * of the probed builds.
+     *
+     * @throws IOException if the timestamp of a probed build cannot be got, as the time window end would be wrong
+     */
+    private static int getTimeWindowEndIndex(ToolArgs toolArgs, BuildCatalog buildCatalog, List<Integer> buildsNumbers, int fromIndex, long referenceTimestamp,
+                                             ExecutorService detailsExecutorService) throws IOException {
+        if (buildsNumbers.isEmpty() || buildCatalog.hasDetails(buildsNumbers.get(buildsNumbers.size() - 1))) {
+            // the builds are sorted from the newest to the oldest one, so the scan stops at the first build outside the time window
+            for (int index = fromIndex; index < buildsNumbers.size(); index++) {
+                if (isOlderThanTimeWindow(toolArgs, buildCatalog.getTimestamp(buildsNumbers.get(index)), referenceTimestamp)) {
+                    return index;
+                }
+            }
+            return buildsNumbers.size();
+        }
+        int low = fromIndex;
+        int high = buildsNumbers.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isOlderThanTimeWindow(toolArgs, getBuildTimestamp(toolArgs, buildCatalog, buildsNumbers.get(middle), detailsExecutorService), referenceTimestamp)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        if (toolArgs.buildsFromLastXHours > 0) {
+            // the builds in the time window need their timestamps for checking if they started after the reference build
+            fetchBuildsDetails(toolArgs, buildCatalog, buildsNumbers.subList(fromIndex, low), detailsExecutorService);
+        }
+        return low;
+    }
+
+    private static boolean isOlderThanTimeWindow(ToolArgs toolArgs, long timestamp, long referenceTimestamp) {
+        final int oneHour = 1000*60*60;
+        return timestamp == BuildCatalog.NO_TIMESTAMP || (referenceTimestamp - timestamp) / oneHour > toolArgs.buildsFromLastXHours;
+    }
+
+    /**
+     * @return the timestamp of @buildNumber, requesting it if it is not in the job response
+     * @throws IOException if the request fails after its retries or the response doesn't contain the timestamp
+     */
+    private static long getBuildTimestamp(ToolArgs toolArgs, BuildCatalog buildCatalog, Integer buildNumber, ExecutorService detailsExecutorService) throws IOException {
+        if (!buildCatalog.hasDetails(buildNumber)) {
+            fetchBuildsDetails(toolArgs, buildCatalog, Arrays.asList(buildNumber), detailsExecutorService);
+        }
+        if (!buildCatalog.hasDetails(buildNumber)) {
+            // an unknown timestamp would end the time window at this build and drop the older builds of the window
+            throw new IOException("Could not get the timestamp of the job build " + buildNumber + ", the builds of the last " + toolArgs.buildsFromLastXHours + " hours cannot be computed.");
+        }
+        return buildCatalog.getTimestamp(buildNumber);
+    }
+
+    /**
+     * Request in parallel with @detailsExecutorService the timestamp and the parameters of the @buildsNumbers which are not in the job response.
+     */
+    private static void fetchBuildsDetails(ToolArgs toolArgs, BuildCatalog buildCatalog, List<Integer> buildsNumbers, ExecutorService detailsExecutorService) throws IOException {
+        List<Integer> missingBuilds = new ArrayList<>();
+        for (Integer buildNumber : buildsNumbers) {
+            if (!buildCatalog.hasDetails(buildNumber)) {
+                missingBuilds.add(buildNumber);
+            }
+        }
+        if (missingBuilds.isEmpty()) {
+            return;
+        }
+        Map<Integer, Future<String>> responses = new LinkedHashMap<>();
+        for (Integer buildNumber : missingBuilds) {
+            String buildApiUrl = JenkinsApi.getApiJsonUrl(replaceUrlPrefix(buildCatalog.getUrl(buildNumber), toolArgs.jobUrl, toolArgs.newUrlPrefix), JenkinsApi.BUILD_TREE);
+            responses.put(buildNumber, detailsExecutorService.submit(() -> getUrlResponse(buildApiUrl, toolArgs.username, toolArgs.password)));
+        }
+        for (Map.Entry<Integer, Future<String>> response : responses.entrySet()) {
+            try {
+                buildCatalog.setDetails(response.getKey(), response.getValue().get());
+            } catch (ExecutionException | IllegalArgumentException | JsonPathException | ClassCastException e) {
+                System.err.println("Got exception when getting the details of the job build " + response.getKey() + ": " + e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted when getting the job builds details.", e);
+            }
+        }
+    }
+
+    private static Integer submitBuildNodes(CompletionService<JenkinsNodeArtifactsFilter> completionService, ExecutorService parserExecutorService, ToolArgs toolArgs, Set<Integer> excludedBuilds) throws IOException {
+        String apiJobUrl = JenkinsApi.getApiJsonUrl(replaceUrlPrefix(toolArgs.jobUrl, toolArgs.jobUrl, toolArgs.newUrlPrefix), JenkinsApi.getJobTree(toolArgs));
         String jobResponse = getUrlResponse(apiJobUrl, toolArgs.username, toolArgs.password);
+        BuildCatalog buildCatalog;
+        try {
+            buildCatalog = new BuildCatalog(jobResponse);
+        } catch (IllegalArgumentException | JsonPathException | ClassCastException e) {
+            throw new IllegalArgumentException("Exception when parsing the job api response for URL " + toolArgs.jobUrl + " : " + jobResponse, e);
+        }
         Set<Integer> backupBuilds = new HashSet<>();
-        computeBuilds(toolArgs, excludedBuilds, backupBuilds, jobResponse);
+        computeBuilds(toolArgs, excludedBuilds, backupBuilds, buildCatalog);
         Integer processCount = 0;
         for (Integer buildNumber : toolArgs.builds) {
             List<String> nodesUrls;
@@ -535,10 +575,11 @@ public class Main {
             Boolean useBackup = backupBuilds.contains(buildNumber);
             String buildUrl = null;
             String buildApiResp = null;
+            Boolean finishedBuild = false;
             if (!useBackup) {
-                buildUrl = ((List<String>) JsonPath.read(jobResponse, String.format(buildsNumberUrlJsonPath, buildNumber))).get(0);
+                buildUrl = buildCatalog.getUrl(buildNumber);
                 try {
-                    buildApiResp = getUrlResponse(replaceUrlPrefix(buildUrl, toolArgs.jobUrl, toolArgs.newUrlPrefix).concat("/api/json"), toolArgs.username, toolArgs.password);
+                    buildApiResp = getUrlResponse(JenkinsApi.getApiJsonUrl(replaceUrlPrefix(buildUrl, toolArgs.jobUrl, toolArgs.newUrlPrefix), JenkinsApi.BUILD_TREE), toolArgs.username, toolArgs.password);
                 } catch (IOException e) {
                     System.err.println("Got exception when getting API response for job build URL ".concat(buildUrl).concat(": ").concat(e.toString()));
                     continue;
@@ -549,6 +590,7 @@ public class Main {
             } else {
                 Configuration conf = Configuration.defaultConfiguration().addOptions(Option.DEFAULT_PATH_LEAF_TO_NULL, Option.SUPPRESS_EXCEPTIONS);
                 nodesUrls = JsonPath.using(conf).parse(buildApiResp).read(String.format(runsNumberUrlJsonPath, buildNumber));
+                finishedBuild = Boolean.FALSE.equals(JsonPath.using(conf).parse(buildApiResp).read(buildingJsonPath));
                 if (nodesUrls.size() == 0) {
                     nodesUrls = Arrays.asList(buildUrl);
                 }
@@ -563,8 +605,8 @@ public class Main {
 
             for (String nodeUrl : nodesUrls) {
                 nodeUrl = replaceUrlPrefix(nodeUrl, toolArgs.newUrlPrefix, toolArgs.jobUrl);
-                if (toolArgs.nodeUrlFilter.isEmpty() || nodeUrl.matches(toolArgs.nodeUrlFilter)) {
-                    completionService.submit(new JenkinsNodeArtifactsFilter(toolArgs, String.valueOf(buildNumber), nodeUrl, useBackup, backupBuildDirFile));
+                if (toolArgs.filterEngine.matchesNodeUrl(nodeUrl)) {
+                    completionService.submit(new JenkinsNodeArtifactsFilter(toolArgs, String.valueOf(buildNumber), nodeUrl, useBackup, finishedBuild, backupBuildDirFile, parserExecutorService));
                     processCount += 1;
                 }
             };
@@ -572,9 +614,16 @@ public class Main {
         return processCount;
     }
 
-    private static void printTheNodesOrTestsMatchingSearchedText(ToolArgs toolArgs, MultiValuedMap<String, String> buildNodesArtifacts) throws MalformedURLException {
-        toolArgs.htmlGenerator.addParagraph("Print the nodes matching the searched text \"" + StringEscapeUtils.escapeHtml4(toolArgs.searchedText) + "\" in artifacts for ".concat(toolArgs.jobUrl).concat(": "));
-        System.out.println("\nPrint the nodes matching the searched text \"" + toolArgs.searchedText + "\" in artifacts: ");
+    /**
+     * Print the nodes where the searched pattern named @patternName was found, the name is empty for a single searched text,
+     * with the lines where it was found in each artifact from @artifactsMatchLocations, by buildNumber#nodeUrl#artifactRelativePath.
+     */
+    private static void printTheNodesOrTestsMatchingSearchedText(ToolArgs toolArgs, String patternName, MultiValuedMap<String, String> buildNodesArtifacts,
+                                                                 MultiValuedMap<String, MatchLocation> artifactsMatchLocations) throws MalformedURLException {
+        String searchedText = patternName.isEmpty() ? "the searched text \"" + toolArgs.searchedText + "\""
+                : "the searched pattern \"" + patternName + "\" (\"" + toolArgs.patternsSearch.getPattern(patternName) + "\")";
+        toolArgs.htmlGenerator.addParagraph("Print the nodes matching " + StringEscapeUtils.escapeHtml4(searchedText) + " in artifacts for ".concat(toolArgs.jobUrl).concat(": "));
+        System.out.println("\nPrint the nodes matching " + searchedText + " in artifacts: ");
         toolArgs.htmlGenerator.startTable();
         toolArgs.htmlGenerator.startRow().addColumnValue("Build", true).addColumnValue("Nodes", true).addColumnValue("Artifacts", true).endRow();
         System.out.println("-> Found the searched text in <b>".concat(String.valueOf(buildNodesArtifacts.keySet().size())).concat("</b> build nodes."));
@@ -610,13 +659,60 @@ public class Main {
             } else {
                 artifactsColumnValue += new HtmlGenerator().addLink(buildNodeArtifact.getValue(), buildArtifactLink(currentNode, buildNodeArtifact.getValue())).addNewLine().getContent();
                 System.out.println("\t\tArtifact relative path: ".concat(buildNodeArtifact.getValue()));
+                for (MatchLocation matchLocation : artifactsMatchLocations.get(buildNodeArtifact.getKey().concat(KEYS_SEPARATOR).concat(buildNodeArtifact.getValue()))) {
+                    if (matchLocation.patternNames.contains(patternName)) {
+                        artifactsColumnValue += printMatchLocation(matchLocation);
+                    }
+                }
             }
         }
         toolArgs.htmlGenerator.addColumnValue(artifactsColumnValue).endRow();
         toolArgs.htmlGenerator.startRow().addColumnValue("Nodes count: ".concat(String.valueOf(buildNodesArtifacts.keySet().size())), true).addColumnValue("").addColumnValue("").endRow().endTable().addNewLine();
     }
 
-    private static Boolean failuresAreEqual(String failure1, String failure2, Double diffThreshold) {
+    /**
+     * Print the artifacts whose search was stopped, because the regular expressions spent the -DregexTimeoutSeconds budget
+     * or their download failed, so they may match the searched text even if they are not in the results.
+     */
+    private static void printTheArtifactsNotSearchedUntilTheEnd(ToolArgs toolArgs, String title, MultiValuedMap<String, String> buildNodesArtifacts) throws MalformedURLException {
+        toolArgs.htmlGenerator.addParagraph(title.concat(" for ").concat(toolArgs.jobUrl).concat(": "));
+        System.out.println("\n".concat(title).concat(": "));
+        toolArgs.htmlGenerator.startTable();
+        toolArgs.htmlGenerator.startRow().addColumnValue("Build", true).addColumnValue("Nodes", true).addColumnValue("Artifacts", true).endRow();
+        String[] buildNodes = buildNodesArtifacts.keySet().toArray(new String[0]);
+        Arrays.sort(buildNodes);
+        for (String buildNode : buildNodes) {
+            String[] buildNodeTokens = buildNode.split(KEYS_SEPARATOR);
+            String artifactsColumnValue = "";
+            System.out.println("\nBuild: ".concat(buildNodeTokens[0]).concat("\n\tNode: ").concat(buildNodeTokens[1]));
+            for (String artifactRelativePath : buildNodesArtifacts.get(buildNode)) {
+                artifactsColumnValue += new HtmlGenerator().addLink(artifactRelativePath, buildArtifactLink(buildNodeTokens[1], artifactRelativePath)).addNewLine().getContent();
+                System.out.println("\t\tArtifact relative path: ".concat(artifactRelativePath));
+            }
+            toolArgs.htmlGenerator.startRow().addColumnValue("#".concat(buildNodeTokens[0])).addColumnValue(replaceUrlPrefix(buildNodeTokens[1], toolArgs.jobUrl, ""), buildNodeTokens[1])
+                    .addColumnValue(artifactsColumnValue).endRow();
+        }
+        toolArgs.htmlGenerator.endTable().addNewLine();
+    }
+
+    /**
+     * Print the matched line of @matchLocation with the lines around it.
+     *
+     * @return the HTML content of the lines, for the artifacts column
+     */
+    private static String printMatchLocation(MatchLocation matchLocation) {
+        String location = "Line " + matchLocation.lineNumber + ", byte offset " + matchLocation.byteOffset + ":";
+        System.out.println("\t\t\t".concat(location));
+        String contextLines = "";
+        for (int i = 0; i < matchLocation.contextLines.size(); i++) {
+            String contextLine = (i == matchLocation.matchedLineIndex ? "> " : "  ").concat(matchLocation.contextLines.get(i));
+            System.out.println("\t\t\t".concat(contextLine));
+            contextLines = contextLines.concat(contextLine).concat("\n");
+        }
+        return new HtmlGenerator().addText(location).addPreformattedText(StringEscapeUtils.escapeHtml4(contextLines)).getContent();
+    }
+
+    static Boolean failuresAreEqual(String failure1, String failure2, Double diffThreshold) {
         Integer maxDistance = Math.max(failure1.length(), failure2.length());
         if (maxDistance == 0) {
             return true;
@@ -664,22 +760,7 @@ public class Main {
     private static void printTheCommonFailures(ToolArgs toolArgs, MultiValuedMap<String, TestFailure> buildNodesFailures) {
         toolArgs.htmlGenerator.addParagraph("Group common failures from tests reports for ".concat(toolArgs.jobUrl).concat(", ").concat(toolArgs.jobUrl2.equals(toolArgs.jobUrl) ? "" : toolArgs.jobUrl2).concat(": "));
         System.out.println("\nGroup common failures from tests reports: ");
-        MultiValuedMap<String, TestFailure> groupedBuildNodesFailures = new ArrayListValuedHashMap<>();
-        for (Map.Entry<String, TestFailure> buildNodeFailure : buildNodesFailures.entries()) {
-            String failureKey = buildNodeFailure.getKey();
-            String groupedBuildNodeFailureKey = null;
-            for (Map.Entry<String, TestFailure> groupedBuildNodeFailure : groupedBuildNodesFailures.entries()) {
-                if (failuresAreEqual(buildNodeFailure.getValue().failureToCompare, groupedBuildNodeFailure.getValue().failureToCompare, toolArgs.diffThreshold)) {
-                    groupedBuildNodeFailureKey = groupedBuildNodeFailure.getKey();
-                    break;
-                }
-            }
-            if (groupedBuildNodeFailureKey != null) {
-                groupedBuildNodesFailures.put(groupedBuildNodeFailureKey, buildNodeFailure.getValue());
-            } else {
-                groupedBuildNodesFailures.put(failureKey, buildNodeFailure.getValue());
-            }
-        }
+        MultiValuedMap<String, TestFailure> groupedBuildNodesFailures = FailureClusterer.cluster(buildNodesFailures, toolArgs.diffThreshold);
 
         // add failure tests count to be able to sort in the most frequent failures
         ArrayListValuedHashMap<String, TestFailure> groupedBuildFailures = new ArrayListValuedHashMap<>();
@@ -853,25 +934,38 @@ public class Main {
         toolArgs2.buildParamsFilter = toolArgs.referenceBuildParamsFilter;
 
         // ======== START PROCESSING THE JOB NODES IN PARALLEL ========
+        // the I/O threads download the nodes artifacts and the parser threads parse them, so the downloads overlap with the parsing
         ExecutorService executorService;
-        if (toolArgs.threadPoolSize <= 0) {
+        if (toolArgs.ioThreadPoolSize <= 0) {
             executorService = Executors.newWorkStealingPool();
         } else {
-            executorService = Executors.newFixedThreadPool(toolArgs.threadPoolSize);
+            executorService = Executors.newFixedThreadPool(toolArgs.ioThreadPoolSize);
         }
+        ExecutorService parserExecutorService = ArtifactParser.newParserExecutorService(toolArgs.cpuThreadPoolSize, toolArgs.parserQueueSize);
         CompletionService<JenkinsNodeArtifactsFilter> completionService = new ExecutorCompletionService<>(
                 executorService);
-        Integer processCount = submitBuildNodes(completionService, toolArgs, new HashSet<>());
+        Integer processCount = submitBuildNodes(completionService, parserExecutorService, toolArgs, new HashSet<>());
         if (!toolArgs.referenceBuilds.isEmpty() || toolArgs.lastReferenceBuildsCount > 0 || toolArgs.referenceBuildsFromLastXHours > 0) {
             // submit also the build nodes for jobUrl2, with builds @referenceBuilds
             Set<Integer> excludedBuilds = new HashSet<>();
             if (toolArgs.jobUrl2.equals(toolArgs.jobUrl) && toolArgs.excludeSelfBuildsFromReferenceJob) {
                 excludedBuilds = toolArgs.builds;
             }
-            processCount += submitBuildNodes(completionService, toolArgs2, excludedBuilds);
+            processCount += submitBuildNodes(completionService, parserExecutorService, toolArgs2, excludedBuilds);
         }
 
-        MultiValuedMap<String, String> buildNodesArtifacts = new ArrayListValuedHashMap<>();
+        // the build nodes results for each searched pattern name, in the patterns order,
+        // the tests matching any of the patterns are reported together, with an empty name
+        Map<String, MultiValuedMap<String, String>> patternsBuildNodesArtifacts = new LinkedHashMap<>();
+        for (String patternName : toolArgs.searchInJUnitReports ? Collections.singletonList("") : toolArgs.patternsSearch.getNames()) {
+            patternsBuildNodesArtifacts.put(patternName, new ArrayListValuedHashMap<>());
+        }
+        // the lines where the searched patterns were found by buildNumber#nodeUrl#artifactRelativePath
+        MultiValuedMap<String, MatchLocation> artifactsMatchLocations = new ArrayListValuedHashMap<>();
+        // the artifacts not searched until the end by buildNumber#nodeUrl, see RegexBudget
+        MultiValuedMap<String, String> buildNodesTimedOutArtifacts = new ArrayListValuedHashMap<>();
+        // the artifacts whose download failed after a part of them was searched, by buildNumber#nodeUrl
+        MultiValuedMap<String, String> buildNodesIncompleteArtifacts = new ArrayListValuedHashMap<>();
         MultiValuedMap<String, TestFailure> buildNodesFailures = new ArrayListValuedHashMap<>();
         MultiValuedMap<String, TestFailure> buildNodesTestFailures = new ArrayListValuedHashMap<>();
         MultiValuedMap<String, TestFailure> buildNodesTestFailures2 = new ArrayListValuedHashMap<>();
@@ -879,12 +973,23 @@ public class Main {
         // now see if there are exceptions while computing the builds nodes and extract the results
         for (int process = 0; process < processCount; process++) {
             try {
-                JenkinsNodeArtifactsFilter completedProcess = completionService.take().get();
-                if (completedProcess.matchedArtifacts.size() > 0) {
-                    buildNodesArtifacts.putAll(String.valueOf(completedProcess.buildNumber).concat(KEYS_SEPARATOR).concat(completedProcess.nodeUrl), completedProcess.matchedArtifacts);
+                JenkinsNodeArtifactsFilter completedProcess = completionService.take().get().awaitParsedArtifacts();
+                for (String patternName : completedProcess.matchedArtifacts.keySet()) {
+                    patternsBuildNodesArtifacts.get(patternName).putAll(String.valueOf(completedProcess.buildNumber).concat(KEYS_SEPARATOR).concat(completedProcess.nodeUrl), completedProcess.matchedArtifacts.get(patternName));
+                }
+                for (String artifactRelativePath : completedProcess.matchLocations.keySet()) {
+                    artifactsMatchLocations.putAll(String.valueOf(completedProcess.buildNumber).concat(KEYS_SEPARATOR).concat(completedProcess.nodeUrl).concat(KEYS_SEPARATOR).concat(artifactRelativePath),
+                            completedProcess.matchLocations.get(artifactRelativePath));
+                }
+                if (completedProcess.timedOutArtifacts.size() > 0) {
+                    buildNodesTimedOutArtifacts.putAll(String.valueOf(completedProcess.buildNumber).concat(KEYS_SEPARATOR).concat(completedProcess.nodeUrl), completedProcess.timedOutArtifacts);
+                }
+                if (completedProcess.incompleteArtifacts.size() > 0) {
+                    buildNodesIncompleteArtifacts.putAll(String.valueOf(completedProcess.buildNumber).concat(KEYS_SEPARATOR).concat(completedProcess.nodeUrl), completedProcess.incompleteArtifacts);
                 }
                 if (completedProcess.matchedFailedTests.size() > 0) {
-                    buildNodesArtifacts.putAll(String.valueOf(completedProcess.buildNumber).concat(KEYS_SEPARATOR).concat(completedProcess.nodeUrl), completedProcess.matchedFailedTests);
+                    // a failure message matches if any of the searched patterns matches it
+                    patternsBuildNodesArtifacts.get("").putAll(String.valueOf(completedProcess.buildNumber).concat(KEYS_SEPARATOR).concat(completedProcess.nodeUrl), completedProcess.matchedFailedTests);
                 }
                 if (completedProcess.testsStatus.size() > 0) {
                     testsStatus.putAll(completedProcess.testsStatus);
@@ -915,6 +1020,9 @@ public class Main {
             }
         }
         executorService.shutdown();
+        parserExecutorService.shutdown();
+        System.out.println(ContentEncodingInterceptor.getSummary());
+        System.out.println(RequestGovernor.getSummary());
         // remove "#Unfinished" from build directories names
         for (Integer buildNumber : toolArgs.builds) {
             File unfinishedBackupBuildDirFile = new File(String.valueOf(toolArgs.backupJobDirFile).concat(File.separator).concat(String.valueOf(buildNumber)).concat(KEYS_SEPARATOR).concat("Unfinished"));
@@ -935,7 +1043,20 @@ public class Main {
 
         if (!toolArgs.groupTestsFailures && !toolArgs.showTestsDifferences && !toolArgs.computeStabilityList) {
             // ======== PRINT THE NODES/TESTS MATCHING THE SEARCHED TEXT ========
-            printTheNodesOrTestsMatchingSearchedText(toolArgs, buildNodesArtifacts);
+            for (Map.Entry<String, MultiValuedMap<String, String>> patternBuildNodesArtifacts : patternsBuildNodesArtifacts.entrySet()) {
+                printTheNodesOrTestsMatchingSearchedText(toolArgs, patternBuildNodesArtifacts.getKey(), patternBuildNodesArtifacts.getValue(), artifactsMatchLocations);
+            }
+        }
+
+        if (!buildNodesTimedOutArtifacts.isEmpty()) {
+            // ======== PRINT THE ARTIFACTS NOT SEARCHED UNTIL THE END ========
+            printTheArtifactsNotSearchedUntilTheEnd(toolArgs, "Print the artifacts not searched until the end, the searched text regular expressions ran for more than "
+                    + toolArgs.regexTimeoutSeconds + " seconds", buildNodesTimedOutArtifacts);
+        }
+
+        if (!buildNodesIncompleteArtifacts.isEmpty()) {
+            // ======== PRINT THE ARTIFACTS WHOSE DOWNLOAD FAILED DURING THE SEARCH ========
+            printTheArtifactsNotSearchedUntilTheEnd(toolArgs, "Print the artifacts not searched until the end, their download failed after a part of them was searched", buildNodesIncompleteArtifacts);
         }
 
         if (toolArgs.showTestsDifferences) {
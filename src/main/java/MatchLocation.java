@@ -0,0 +1,28 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A line of an artifact where searched patterns were found, with the lines around it, see MatchLocator.
+ */
+class MatchLocation {
+    // the names of the patterns found in the line, the name is empty for a single @searchedText
+    final Set<String> patternNames;
+    // the number of the line, starting from 1
+    final long lineNumber;
+    // the offset of the line start in the artifact bytes
+    final long byteOffset;
+    // the lines before the matched line, the matched line and the lines after it
+    final List<String> contextLines;
+    // the index of the matched line in contextLines
+    final int matchedLineIndex;
+
+    MatchLocation(Set<String> patternNames, long lineNumber, long byteOffset, List<String> previousLines, String matchedLine) {
+        this.patternNames = patternNames;
+        this.lineNumber = lineNumber;
+        this.byteOffset = byteOffset;
+        this.contextLines = new ArrayList<>(previousLines);
+        this.matchedLineIndex = previousLines.size();
+        this.contextLines.add(matchedLine);
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records the lines where the @searchedText patterns are found in an artifact, while the artifact is read by the search,
+ * so the artifact is still downloaded and read only once. The chars read by the search pass through this reader,
+ * which numbers the lines, counts their bytes and keeps the last lines in a ring buffer of a fixed size, so the memory used
+ * doesn't depend on the artifact size. The lines end at "\n", "\r\n" or "\r", like the lines of LINE_MODE.
+ * The lines are matched one by one, so in WINDOW_MODE a match spanning several lines is found by the search but it doesn't have a location,
+ * and only the first MAX_MATCHED_LINE_LENGTH chars of a line are kept, so the lines longer than that aren't matched and don't have a location either.
+ */
+class MatchLocator extends FilterReader {
+    static final int DEFAULT_CONTEXT_LINES = 2;
+    // the lines kept for the context are cut after this length
+    private static final int MAX_LINE_LENGTH = 500;
+    // the lines longer than this, e.g. in minified or binary artifacts, are not kept whole for matching them
+    private static final int MAX_MATCHED_LINE_LENGTH = TextSearch.DEFAULT_WINDOW_SIZE;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Charset charset;
+    private final MultiPatternSearch patternsSearch;
+    private final int contextLinesCount;
+    private final int maxMatches;
+    private final List<MatchLocation> matchLocations = new ArrayList<>();
+    // the locations still waiting for the lines after their matched line
+    private final List<MatchLocation> pendingLocations = new ArrayList<>();
+    // the last contextLinesCount lines, the oldest one is at previousLinesIndex when the ring buffer is full
+    private final String[] previousLines;
+    private int previousLinesSize;
+    private int previousLinesIndex;
+    // the first MAX_MATCHED_LINE_LENGTH chars of the current line, with its chars and bytes count
+    private final StringBuilder line = new StringBuilder();
+    private long lineLength;
+    private long lineBytesCount;
+    private long lineNumber = 1;
+    private long lineByteOffset;
+    private final long newLineBytesCount;
+    private final long carriageReturnBytesCount;
+    // true if the last char read is a '\r', so a '\n' after it is the end of the same line
+    private boolean afterCarriageReturn;
+    private boolean ended;
+
+    /**
+     * @param artifactReader    the reader of the artifact, its bytes are counted with its encoding if it is an InputStreamReader
+     * @param contextLinesCount the count of the lines kept before and after each matched line
+     * @param maxMatches        the count of the matched lines recorded, the next ones are ignored
+     */
+    MatchLocator(Reader artifactReader, MultiPatternSearch patternsSearch, int contextLinesCount, int maxMatches) {
+        super(artifactReader);
+        this.charset = artifactReader instanceof InputStreamReader ? Charset.forName(((InputStreamReader) artifactReader).getEncoding()) : Charset.defaultCharset();
+        this.patternsSearch = patternsSearch;
+        this.contextLinesCount = contextLinesCount;
+        this.maxMatches = maxMatches;
+        this.previousLines = new String[contextLinesCount];
+        this.newLineBytesCount = getBytesCount("\n");
+        this.carriageReturnBytesCount = getBytesCount("\r");
+    }
+
+    @Override
+    public int read() throws IOException {
+        char[] buffer = new char[1];
+        return read(buffer, 0, 1) == -1 ? -1 : buffer[0];
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        int readCount = super.read(buffer, offset, length);
+        if (readCount == -1) {
+            if (!ended && lineLength > 0) {
+                endLine(0);
+            }
+            ended = true;
+        } else if (!isComplete()) {
+            int start = offset;
+            for (int i = offset; i < offset + readCount; i++) {
+                char c = buffer[i];
+                if (c == '\n' && afterCarriageReturn) {
+                    // the line ended at the '\r' of "\r\n"
+                    lineByteOffset += newLineBytesCount;
+                    start = i + 1;
+                } else if (c == '\n' || c == '\r') {
+                    appendToLine(buffer, start, i - start);
+                    endLine(c == '\n' ? newLineBytesCount : carriageReturnBytesCount);
+                    start = i + 1;
+                }
+                afterCarriageReturn = c == '\r';
+            }
+            appendToLine(buffer, start, offset + readCount - start);
+        }
+        return readCount;
+    }
+
+    /**
+     * Append the @count chars of @buffer from @start to the current line, only its first MAX_MATCHED_LINE_LENGTH chars are kept
+     */
+    private void appendToLine(char[] buffer, int start, int count) {
+        lineLength += count;
+        lineBytesCount += getBytesCount(CharBuffer.wrap(buffer, start, count));
+        line.append(buffer, start, Math.min(count, Math.max(0, MAX_MATCHED_LINE_LENGTH - line.length())));
+    }
+
+    /**
+     * Read the rest of the artifact after the search ended, until maxMatches lines are recorded with the lines after them.
+     */
+    void readRemainingMatches() throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        while (!isComplete() && read(buffer, 0, buffer.length) != -1) {
+            // the lines are matched while they are read
+        }
+    }
+
+    /**
+     * @return the locations of the @foundPatterns, the patterns found by the search of the whole artifact
+     */
+    List<MatchLocation> getMatchLocations(Set<String> foundPatterns) {
+        List<MatchLocation> foundLocations = new ArrayList<>();
+        for (MatchLocation matchLocation : matchLocations) {
+            matchLocation.patternNames.retainAll(foundPatterns);
+            if (!matchLocation.patternNames.isEmpty()) {
+                foundLocations.add(matchLocation);
+            }
+        }
+        return foundLocations;
+    }
+
+    /**
+     * @return true if maxMatches lines are recorded with the lines after them, so the next lines are not needed
+     */
+    private boolean isComplete() {
+        return matchLocations.size() >= maxMatches && pendingLocations.isEmpty();
+    }
+
+    /**
+     * @param endOfLineBytesCount the bytes count of the end of line after the current line
+     */
+    private void endLine(long endOfLineBytesCount) {
+        String lineText = line.toString();
+        String contextLine = lineText.length() > MAX_LINE_LENGTH ? lineText.substring(0, MAX_LINE_LENGTH).concat("...") : lineText;
+        for (Iterator<MatchLocation> iterator = pendingLocations.iterator(); iterator.hasNext(); ) {
+            MatchLocation pendingLocation = iterator.next();
+            pendingLocation.contextLines.add(contextLine);
+            if (pendingLocation.contextLines.size() - 1 - pendingLocation.matchedLineIndex >= contextLinesCount) {
+                iterator.remove();
+            }
+        }
+        // the patterns found in the start of a longer line may not match the whole line, e.g. with "$"
+        Set<String> foundPatterns = matchLocations.size() < maxMatches && lineLength == lineText.length() ? patternsSearch.findInLine(lineText) : Collections.emptySet();
+        if (!foundPatterns.isEmpty()) {
+            MatchLocation matchLocation = new MatchLocation(foundPatterns, lineNumber, lineByteOffset, getPreviousLines(), contextLine);
+            matchLocations.add(matchLocation);
+            if (contextLinesCount > 0) {
+                pendingLocations.add(matchLocation);
+            }
+        }
+        if (contextLinesCount > 0) {
+            previousLines[previousLinesIndex] = contextLine;
+            previousLinesIndex = (previousLinesIndex + 1) % contextLinesCount;
+            previousLinesSize = Math.min(previousLinesSize + 1, contextLinesCount);
+        }
+        lineNumber++;
+        lineByteOffset += lineBytesCount + endOfLineBytesCount;
+        line.setLength(0);
+        lineLength = 0;
+        lineBytesCount = 0;
+    }
+
+    /**
+     * @return the lines kept in the ring buffer, from the oldest one
+     */
+    private List<String> getPreviousLines() {
+        if (previousLinesSize < contextLinesCount) {
+            return Arrays.asList(previousLines).subList(0, previousLinesSize);
+        }
+        List<String> lines = new ArrayList<>(Arrays.asList(previousLines).subList(previousLinesIndex, contextLinesCount));
+        lines.addAll(Arrays.asList(previousLines).subList(0, previousLinesIndex));
+        return lines;
+    }
+
+    /**
+     * @return the count of the bytes of @chars in the artifact encoding, exact for UTF-8 and the single byte encodings
+     */
+    private long getBytesCount(CharSequence chars) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            long bytesCount = 0;
+            for (int i = 0; i < chars.length(); i++) {
+                char c = chars.charAt(i);
+                // a surrogate pair is a 4 bytes char
+                bytesCount += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+            }
+            return bytesCount;
+        }
+        return MultiPatternSearch.isAsciiCompatible(charset) ? chars.length() : chars.toString().getBytes(charset).length;
+    }
+}
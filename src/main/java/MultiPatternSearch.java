@@ -0,0 +1,579 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Searches several named regular expressions in one pass over each artifact, so the artifact is downloaded and read
+ * only once for all of them. The @searchedText is either a single regular expression, or a list of named patterns
+ * like "crash=.*Terminating app.*;;fatal=.*fatal error:.*", or a list of objects with a name and a value in the config file.
+ * In a window, or in a line in LINE_MODE, the literal texts required by the patterns are all found with one Aho-Corasick
+ * automaton: a pattern which is a literal text like ".*fatal error:.*" is found when its literal is found, and the other
+ * patterns are matched only if their required literal is found. The patterns without a required literal are combined
+ * in one alternation, which runs once, and they are matched one by one only if the alternation was found.
+ */
+class MultiPatternSearch {
+    static final String PATTERNS_SEPARATOR = ";;";
+    static final String NAME_SEPARATOR = "=";
+    // the file bytes are mapped in segments, as a mapped buffer is indexed by int
+    private static final long MAPPED_SEGMENT_SIZE = 1L << 30;
+    private static final int BYTES_BUFFER_SIZE = 64 * 1024;
+    // the bytes searched between two checks of the stop flag
+    private static final int STOP_CHECK_SIZE = 1024 * 1024;
+    private static final Pattern NAMED_PATTERN = Pattern.compile("([\\w.-]+)" + NAME_SEPARATOR + "(.*)", Pattern.DOTALL);
+
+    private final Map<String, String> patterns;
+    private final List<String> names = new ArrayList<>();
+    private final List<TextSearch> searches = new ArrayList<>();
+    // true if all the patterns can be searched in the windows or lines, instead of the whole content
+    private final boolean searchesInParts;
+    // the patterns which are literal texts, found when the literalsAutomaton finds them
+    private final BitSet literalPatterns = new BitSet();
+    // the patterns with literals found by the literalsAutomaton, which is null if there isn't any
+    private final BitSet automatonPatterns = new BitSet();
+    private final AhoCorasick literalsAutomaton;
+    // the patterns combined in the combinedPattern, which is null if there are less than two or they can't be combined
+    private final BitSet combinedPatterns = new BitSet();
+    private final Pattern combinedPattern;
+    // true if all the patterns are found by the literalsAutomaton with ASCII literals, so a file can be searched in its bytes
+    private final boolean searchesBytes;
+    // the literalsAutomaton transitions for the bytes, which skip the end of lines as the windows do, null if not searchesBytes
+    private final int[] bytesTransitions;
+    // the same literals, found by skipping bytes in the lines, null if not searchesBytes
+    private final BytesLiteralsSearch bytesLiteralsSearch;
+
+    /**
+     * @param patterns the regular expressions by name, in the order they are reported
+     */
+    MultiPatternSearch(Map<String, String> patterns, String searchMode, int windowSize) {
+        this.patterns = patterns;
+        boolean searchesInParts = true;
+        List<String> literals = new ArrayList<>();
+        List<Integer> literalsPatterns = new ArrayList<>();
+        String combinedRegex = null;
+        for (Map.Entry<String, String> pattern : patterns.entrySet()) {
+            TextSearch search = new TextSearch(pattern.getValue(), searchMode, windowSize);
+            int index = searches.size();
+            names.add(pattern.getKey());
+            searches.add(search);
+            searchesInParts = searchesInParts && search.searchesInWindows();
+            if (search.getCores() == null || search.matchesAnyContent()) {
+                continue;
+            }
+            List<String> patternLiterals = new ArrayList<>();
+            for (String core : search.getCores()) {
+                String literal = LiteralPrefilter.getWholeLiteral(core);
+                if (literal == null) {
+                    patternLiterals = null;
+                    break;
+                }
+                patternLiterals.add(literal);
+            }
+            if (patternLiterals != null) {
+                literalPatterns.set(index);
+            } else {
+                patternLiterals = LiteralPrefilter.getRequiredLiterals(search.getCores());
+            }
+            if (patternLiterals != null) {
+                automatonPatterns.set(index);
+                literals.addAll(patternLiterals);
+                literalsPatterns.addAll(Collections.nCopies(patternLiterals.size(), index));
+                continue;
+            }
+            combinedPatterns.set(index);
+            for (String core : search.getCores()) {
+                combinedRegex = combinedRegex == null ? "(?:".concat(core).concat(")") : combinedRegex.concat("|(?:").concat(core).concat(")");
+            }
+        }
+        this.searchesInParts = searchesInParts;
+        this.literalsAutomaton = literals.isEmpty() ? null : new AhoCorasick(literals, literalsPatterns);
+        Pattern combinedPattern = null;
+        if (combinedPatterns.cardinality() > 1) {
+            try {
+                combinedPattern = Pattern.compile(combinedRegex);
+            } catch (PatternSyntaxException e) {
+                // e.g. the same group name in two patterns
+                combinedPattern = null;
+            }
+        }
+        if (combinedPattern == null) {
+            combinedPatterns.clear();
+        }
+        this.combinedPattern = combinedPattern;
+        // in the windows each byte is read by the automaton, which is slower than the Horspool search of a single pattern in the decoded windows
+        boolean searchesBytes = searchesInParts && (TextSearch.LINE_MODE.equals(searchMode) || (TextSearch.WINDOW_MODE.equals(searchMode) && patterns.size() > 1));
+        for (int i = 0; i < searches.size(); i++) {
+            searchesBytes = searchesBytes && (searches.get(i).matchesAnyContent() || automatonPatterns.get(i));
+        }
+        for (String literal : literals) {
+            searchesBytes = searchesBytes && StandardCharsets.US_ASCII.newEncoder().canEncode(literal);
+        }
+        this.searchesBytes = searchesBytes && literalsAutomaton != null;
+        this.bytesTransitions = this.searchesBytes ? literalsAutomaton.getBytesTransitions() : null;
+        this.bytesLiteralsSearch = this.searchesBytes ? new BytesLiteralsSearch(literals, literalsPatterns) : null;
+    }
+
+    /**
+     * @return the named patterns of @searchedText by name, or the @searchedText with an empty name if it is not a list of named patterns
+     */
+    static Map<String, String> parsePatterns(String searchedText) {
+        Map<String, String> patterns = new LinkedHashMap<>();
+        if (searchedText.contains(PATTERNS_SEPARATOR)) {
+            for (String namedPattern : searchedText.split(PATTERNS_SEPARATOR)) {
+                if (namedPattern.isEmpty()) {
+                    continue;
+                }
+                Matcher matcher = NAMED_PATTERN.matcher(namedPattern);
+                if (!matcher.matches()) {
+                    // a regular expression containing the separator
+                    patterns.clear();
+                    break;
+                }
+                Validate.isTrue(!patterns.containsKey(matcher.group(1)), "The searched patterns names should be unique, not: " + searchedText);
+                patterns.put(matcher.group(1), matcher.group(2));
+            }
+        }
+        if (patterns.isEmpty()) {
+            patterns.put("", searchedText);
+        }
+        return patterns;
+    }
+
+    /**
+     * @return the names of the patterns found in the content read from @reader, in the patterns order.
+     * It reads the content only until all the patterns are found, as TextSearch.find() does for a single pattern.
+     */
+    Set<String> find(Reader reader) throws IOException {
+        if (searches.size() == 1) {
+            return searches.get(0).find(reader) ? Collections.singleton(names.get(0)) : Collections.emptySet();
+        }
+        BitSet found = new BitSet();
+        for (int i = 0; i < searches.size(); i++) {
+            if (searches.get(i).matchesAnyContent()) {
+                found.set(i);
+            }
+        }
+        if (found.cardinality() == searches.size()) {
+            return getNames(found);
+        }
+        if (!searchesInParts) {
+            String content = IOUtils.toString(reader);
+            for (int i = found.nextClearBit(0); i < searches.size(); i = found.nextClearBit(i + 1)) {
+                if (searches.get(i).matches(content)) {
+                    found.set(i);
+                }
+            }
+        } else if (searchesLines()) {
+            TextSearch.scanLines(reader, line -> partMatches(line, found));
+        } else {
+            TextSearch.scanWindows(reader, searches.get(0).getWindowSize(), searches.get(0).getOverlapSize(), window -> partMatches(window, found));
+        }
+        return getNames(found);
+    }
+
+    /**
+     * @return the names of the patterns found in @file with the @charset encoding, in the patterns order, like find() for its Reader.
+     * If all the patterns literals are ASCII and the @charset encodes the ASCII chars as single bytes, the file is memory mapped
+     * and its bytes are searched for the literals without decoding them, as the bytes of the other chars are not ASCII bytes.
+     * Only the lines, or the windows around a literal, where a pattern which is not a literal text may match are decoded.
+     */
+    Set<String> find(File file, Charset charset) throws IOException {
+        if (!searchesBytes || !isAsciiCompatible(charset)) {
+            Reader reader = new InputStreamReader(new FileInputStream(file), charset);
+            try {
+                return find(reader);
+            } finally {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return findInBytes(channel, charset, 0, channel.size(), null);
+        } finally {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    /**
+     * @return true if a file with the @charset encoding is searched in its bytes, see find(File, Charset)
+     */
+    boolean searchesBytes(Charset charset) {
+        return searchesBytes && isAsciiCompatible(charset);
+    }
+
+    /**
+     * @return the names of the patterns found in the bytes from @start, a line start, to @end of @channel, see find(File, Charset).
+     * The search ends early when @stop is set, if @stop is not null.
+     */
+    Set<String> findInBytes(FileChannel channel, Charset charset, long start, long end, AtomicBoolean stop) throws IOException {
+        BitSet found = new BitSet();
+        for (int i = 0; i < searches.size(); i++) {
+            if (searches.get(i).matchesAnyContent()) {
+                found.set(i);
+            }
+        }
+        if (searchesLines()) {
+            findInLinesBytes(channel, charset, start, end, stop, found);
+        } else {
+            findInWindowsBytes(channel, charset, start, end, stop, found);
+        }
+        return getNames(found);
+    }
+
+    /**
+     * Set in @found the patterns found in the lines from @start to @end of @channel. The literals can't be in two lines,
+     * so they are found by skipping bytes, and only the lines with the literal of a pattern which is not a literal text are decoded.
+     */
+    private void findInLinesBytes(FileChannel channel, Charset charset, long start, long end, AtomicBoolean stop, BitSet found) throws IOException {
+        long size = channel.size();
+        // the segments overlap, so the literals crossing the segments boundary are found
+        long overlapSize = bytesLiteralsSearch.getMaxLength() - 1;
+        // the end of the last line decoded for each pattern, the literals found before it are already matched in it
+        long[] decodedLinesEnds = new long[searches.size()];
+        BitSet literalsFound = new BitSet();
+        for (long segmentStart = start; segmentStart < end; segmentStart += MAPPED_SEGMENT_SIZE) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, Math.min(MAPPED_SEGMENT_SIZE + overlapSize, size - segmentStart));
+            int searchEnd = (int) Math.min(MAPPED_SEGMENT_SIZE, end - segmentStart);
+            int index = 0;
+            while (index < searchEnd) {
+                if (stop != null && stop.get()) {
+                    return;
+                }
+                int partEnd = (int) Math.min(searchEnd, (long) index + STOP_CHECK_SIZE);
+                int literalIndex = bytesLiteralsSearch.find(segment, index, partEnd, literalsFound);
+                if (literalIndex == -1) {
+                    index = partEnd;
+                    continue;
+                }
+                long position = segmentStart + literalIndex;
+                for (int i = literalsFound.nextSetBit(0); i >= 0; i = literalsFound.nextSetBit(i + 1)) {
+                    if (found.get(i) || position < decodedLinesEnds[i]) {
+                        continue;
+                    }
+                    if (literalPatterns.get(i)) {
+                        found.set(i);
+                        continue;
+                    }
+                    long lineStart = getLineStart(channel, position);
+                    decodedLinesEnds[i] = getLineEnd(channel, position, size);
+                    if (searches.get(i).partMatches(decode(channel, charset, lineStart, decodedLinesEnds[i]))) {
+                        found.set(i);
+                    }
+                }
+                if (found.cardinality() == searches.size()) {
+                    return;
+                }
+                literalsFound.clear();
+                index = literalIndex + 1;
+            }
+        }
+    }
+
+    /**
+     * Set in @found the patterns found in the windows from @start to @end of @channel. The literals crossing the end of lines
+     * are found, as the end of lines are not in the windows content, so each byte is read by the literalsAutomaton,
+     * and only the windows around the literal of a pattern which is not a literal text are decoded.
+     */
+    private void findInWindowsBytes(FileChannel channel, Charset charset, long start, long end, AtomicBoolean stop, BitSet found) throws IOException {
+        int windowSize = searches.get(0).getWindowSize();
+        int overlapSize = searches.get(0).getOverlapSize();
+        // the end of the literals already matched in the last window decoded for each pattern, with the overlap size chars after them in the window
+        long[] matchedLiteralsEnds = new long[searches.size()];
+        long size = channel.size();
+        byte[] bytes = new byte[BYTES_BUFFER_SIZE];
+        int state = 0;
+        for (long segmentStart = start; segmentStart < end; segmentStart += MAPPED_SEGMENT_SIZE) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, Math.min(MAPPED_SEGMENT_SIZE, end - segmentStart));
+            for (int bytesStart = 0; bytesStart < segment.limit(); bytesStart += bytes.length) {
+                if (stop != null && stop.get()) {
+                    return;
+                }
+                // copying the bytes in bulk is faster than reading them one by one from the mapped buffer
+                int bytesCount = Math.min(bytes.length, segment.limit() - bytesStart);
+                segment.get(bytes, 0, bytesCount);
+                for (int i = 0; i < bytesCount; i++) {
+                    state = bytesTransitions[state + (bytes[i] & 0xFF)];
+                    if (state >= 0) {
+                        continue;
+                    }
+                    // a literal ends at this byte
+                    state = ~state;
+                    long literalEnd = segmentStart + bytesStart + i + 1;
+                    for (int index : literalsAutomaton.getBytesValues(state)) {
+                        if (found.get(index)) {
+                            continue;
+                        }
+                        if (literalPatterns.get(index)) {
+                            found.set(index);
+                        } else if (literalEnd > matchedLiteralsEnds[index]) {
+                            // the matches up to the overlap size around the literal are in the window, like in the windows of find().
+                            // The window bounds are counted in chars without the end of lines, as a char may have several bytes
+                            long windowStart = skipCharsBackward(channel, charset, literalEnd, 2L * overlapSize);
+                            matchedLiteralsEnds[index] = skipCharsForward(channel, charset, literalEnd, windowSize - 3L * overlapSize, size);
+                            long windowEnd = skipCharsForward(channel, charset, matchedLiteralsEnds[index], overlapSize, size);
+                            if (searches.get(index).partMatches(removeEndOfLines(decode(channel, charset, windowStart, windowEnd)))) {
+                                found.set(index);
+                            }
+                        }
+                    }
+                    if (found.cardinality() == searches.size()) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the start of the @charsCount-th char before @position in @channel, not counting the end of lines, or 0
+     */
+    private static long skipCharsBackward(FileChannel channel, Charset charset, long position, long charsCount) throws IOException {
+        if (charsCount == 0) {
+            return position;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(BYTES_BUFFER_SIZE);
+        long end = position;
+        long skippedChars = 0;
+        while (end > 0) {
+            long start = Math.max(0, end - BYTES_BUFFER_SIZE);
+            bytes.clear();
+            bytes.limit((int) (end - start));
+            channel.read(bytes, start);
+            for (int i = bytes.position() - 1; i >= 0; i--) {
+                if (isCharStart(bytes.get(i), charset) && ++skippedChars == charsCount) {
+                    return start + i;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * @return the index after the @charsCount chars from @position in @channel of @size bytes, not counting the end of lines, or @size
+     */
+    private static long skipCharsForward(FileChannel channel, Charset charset, long position, long charsCount, long size) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(BYTES_BUFFER_SIZE);
+        long start = position;
+        long skippedChars = 0;
+        while (start < size) {
+            bytes.clear();
+            int readCount = Math.max(channel.read(bytes, start), 0);
+            for (int i = 0; i < readCount; i++) {
+                if (isCharStart(bytes.get(i), charset) && skippedChars++ == charsCount) {
+                    return start + i;
+                }
+            }
+            start += readCount == 0 ? size : readCount;
+        }
+        return size;
+    }
+
+    /**
+     * @return true if @b is the first byte of a char which is not an end of line, in an ASCII compatible @charset
+     */
+    private static boolean isCharStart(byte b, Charset charset) {
+        // the UTF-8 continuation bytes are 10xxxxxx, the other ASCII compatible charsets have single byte chars
+        return b != '\n' && b != '\r' && (!StandardCharsets.UTF_8.equals(charset) || (b & 0xC0) != 0x80);
+    }
+
+    /**
+     * @return the index after the last end of line before @position in @channel, or 0 if there isn't one
+     */
+    private static long getLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(BYTES_BUFFER_SIZE);
+        long end = position;
+        while (end > 0) {
+            long start = Math.max(0, end - BYTES_BUFFER_SIZE);
+            bytes.clear();
+            bytes.limit((int) (end - start));
+            channel.read(bytes, start);
+            for (int i = bytes.position() - 1; i >= 0; i--) {
+                if (bytes.get(i) == '\n' || bytes.get(i) == '\r') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * @return the index of the first end of line from @position in @channel of @size bytes, or @size if there isn't one
+     */
+    static long getLineEnd(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(BYTES_BUFFER_SIZE);
+        long start = position;
+        while (start < size) {
+            bytes.clear();
+            int readCount = Math.max(channel.read(bytes, start), 0);
+            for (int i = 0; i < readCount; i++) {
+                if (bytes.get(i) == '\n' || bytes.get(i) == '\r') {
+                    return start + i;
+                }
+            }
+            start += readCount == 0 ? size : readCount;
+        }
+        return size;
+    }
+
+    /**
+     * @return the chars of the bytes from @start to @end of @channel, the bytes of a char cut by @start are skipped
+     */
+    private static String decode(FileChannel channel, Charset charset, long start, long end) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        while (bytes.hasRemaining() && channel.read(bytes, start + bytes.position()) != -1) {
+            // read until the end
+        }
+        int offset = 0;
+        // the UTF-8 continuation bytes are 10xxxxxx
+        while (StandardCharsets.UTF_8.equals(charset) && offset < bytes.position() && (bytes.get(offset) & 0xC0) == 0x80) {
+            offset++;
+        }
+        return new String(bytes.array(), offset, bytes.position() - offset, charset);
+    }
+
+    /**
+     * @return @content without any end of line char, like the windows content of find()
+     */
+    private static String removeEndOfLines(String content) {
+        return content.replace("\r", "").replace("\n", "");
+    }
+
+    /**
+     * @return true if the ASCII chars are the same single bytes in the @charset encoding, and the other chars don't have ASCII bytes
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        return StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset)
+                || charset.name().startsWith("windows-125");
+    }
+
+    /**
+     * Set in @found the patterns found in @part, a window or a line.
+     *
+     * @return true if all the patterns are found
+     */
+    private boolean partMatches(CharSequence part, BitSet found) {
+        BitSet literalsFound = new BitSet();
+        if (literalsAutomaton != null && hasNotFound(automatonPatterns, found)) {
+            literalsAutomaton.find(part, literalsFound);
+        }
+        Boolean combinedFound = null;
+        for (int i = found.nextClearBit(0); i < searches.size(); i = found.nextClearBit(i + 1)) {
+            if (automatonPatterns.get(i) && !literalsFound.get(i)) {
+                continue;
+            }
+            if (literalPatterns.get(i)) {
+                found.set(i);
+                continue;
+            }
+            if (combinedPatterns.get(i)) {
+                combinedFound = combinedFound == null ? combinedPattern.matcher(RegexBudget.guard(part)).find() : combinedFound;
+                if (!combinedFound) {
+                    continue;
+                }
+            }
+            if (searches.get(i).partMatches(part)) {
+                found.set(i);
+            }
+        }
+        return found.cardinality() == searches.size();
+    }
+
+    /**
+     * @return true if a pattern from @patternsIndexes is not in @found
+     */
+    private static boolean hasNotFound(BitSet patternsIndexes, BitSet found) {
+        for (int i = patternsIndexes.nextSetBit(0); i >= 0; i = patternsIndexes.nextSetBit(i + 1)) {
+            if (!found.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> getNames(BitSet found) {
+        Set<String> foundNames = new LinkedHashSet<>();
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            foundNames.add(names.get(i));
+        }
+        return foundNames;
+    }
+
+    /**
+     * @return the names of the patterns found in @line, in the patterns order, as they are searched in each line in LINE_MODE
+     */
+    Set<String> findInLine(String line) {
+        BitSet found = new BitSet();
+        partMatches(line, found);
+        return getNames(found);
+    }
+
+    /**
+     * @return true if any of the patterns matches @content, like find() does for a content read from a Reader
+     */
+    boolean matchesAny(String content) {
+        for (TextSearch search : searches) {
+            if (search.matches(content)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the patterns are searched in each line, in LINE_MODE
+     */
+    boolean searchesLines() {
+        return TextSearch.LINE_MODE.equals(searches.get(0).searchMode);
+    }
+
+    /**
+     * @return true if all the patterns are searched in windows or lines, so any part of the content can be searched separately
+     */
+    boolean searchesInWindows() {
+        return searchesInParts;
+    }
+
+    /**
+     * @return the size of the end of a window which is searched again with the next window
+     */
+    int getOverlapSize() {
+        return searches.get(0).getOverlapSize();
+    }
+
+    /**
+     * @return the patterns names, in the order they are reported, the name is empty for a single @searchedText
+     */
+    List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @return the regular expression named @name
+     */
+    String getPattern(String name) {
+        return patterns.get(name);
+    }
+}
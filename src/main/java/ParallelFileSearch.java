@@ -0,0 +1,161 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+/**
+ * Searches the @searchedText patterns in a large backup or cached artifact file with several threads, so a single huge
+ * artifact doesn't leave the other cores idle. A fork/join task splits the file in halves at lines boundaries,
+ * until the chunks are small enough for each thread to get several of them, and searches the chunks in parallel.
+ * In WINDOW_MODE each chunk also searches the start of the next chunk, so the matches crossing the chunks boundary are found,
+ * and the other chunks searches are stopped as soon as all the searched patterns are found.
+ */
+class ParallelFileSearch {
+    static final long DEFAULT_MIN_SIZE_MB = 64;
+    private static final long MIN_CHUNK_SIZE = 8 * 1024 * 1024;
+    // more chunks than threads, so a thread which ends its chunks early steals the chunks of the other threads
+    private static final int CHUNKS_PER_THREAD = 4;
+    // a char has at most 4 bytes in UTF-8
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final long minSize;
+    private final ForkJoinPool forkJoinPool;
+
+    /**
+     * @param minSizeMB   the files smaller than this are searched by a single thread
+     * @param parallelism the count of the threads searching the chunks, for all the files
+     */
+    ParallelFileSearch(long minSizeMB, int parallelism) {
+        this.minSize = minSizeMB * 1024 * 1024;
+        // the fork/join threads are daemon threads, the pool is used until the end of the run
+        this.forkJoinPool = new ForkJoinPool(Math.max(parallelism, 1));
+    }
+
+    /**
+     * @return true if @file is large enough to be searched in parallel chunks, and its end of lines bytes can be found without decoding it
+     */
+    boolean isParallelFile(File file, Charset charset) {
+        return file.length() >= minSize && forkJoinPool.getParallelism() > 1 && MultiPatternSearch.isAsciiCompatible(charset);
+    }
+
+    /**
+     * @return the names of the @patternsSearch patterns found in @file, encoded with @charset
+     */
+    Set<String> find(File file, Charset charset, MultiPatternSearch patternsSearch) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            long chunkSize = Math.max(MIN_CHUNK_SIZE, size / ((long) forkJoinPool.getParallelism() * CHUNKS_PER_THREAD));
+            return forkJoinPool.invoke(new ChunkSearch(file, channel, charset, patternsSearch, 0, size, chunkSize, ConcurrentHashMap.newKeySet(), new AtomicBoolean(), RegexBudget.get()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Searches the bytes from @start to @end of a file, @start being a line start, splitting them in two tasks if they are more than @chunkSize.
+     */
+    private static class ChunkSearch extends RecursiveTask<Set<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final File file;
+        private final FileChannel channel;
+        private final Charset charset;
+        private final MultiPatternSearch patternsSearch;
+        private final long start;
+        private final long end;
+        private final long chunkSize;
+        // the patterns found by all the chunks searched until now
+        private final Set<String> foundPatterns;
+        // set when all the patterns are found
+        private final AtomicBoolean stop;
+        // the time budget of the file search regular expressions, see RegexBudget
+        private final AtomicLong budget;
+
+        ChunkSearch(File file, FileChannel channel, Charset charset, MultiPatternSearch patternsSearch, long start, long end, long chunkSize,
+                    Set<String> foundPatterns, AtomicBoolean stop, AtomicLong budget) {
+            this.file = file;
+            this.channel = channel;
+            this.charset = charset;
+            this.patternsSearch = patternsSearch;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+            this.foundPatterns = foundPatterns;
+            this.stop = stop;
+            this.budget = budget;
+        }
+
+        @Override
+        protected Set<String> compute() {
+            if (stop.get()) {
+                return Collections.emptySet();
+            }
+            // a thread may run the chunks of several files while it waits for a chunk, so the budget is restored
+            AtomicLong previousBudget = RegexBudget.set(budget);
+            try {
+                if (end - start > chunkSize) {
+                    // the second half starts after the end of the line at the middle
+                    long middle = MultiPatternSearch.getLineEnd(channel, start + (end - start) / 2, end) + 1;
+                    if (middle < end) {
+                        ChunkSearch firstHalf = new ChunkSearch(file, channel, charset, patternsSearch, start, middle, chunkSize, foundPatterns, stop, budget);
+                        firstHalf.fork();
+                        Set<String> found = new LinkedHashSet<>(new ChunkSearch(file, channel, charset, patternsSearch, middle, end, chunkSize, foundPatterns, stop, budget).compute());
+                        found.addAll(firstHalf.join());
+                        return found;
+                    }
+                }
+                Set<String> found = searchChunk();
+                foundPatterns.addAll(found);
+                if (foundPatterns.size() == patternsSearch.getNames().size()) {
+                    stop.set(true);
+                }
+                return found;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                RegexBudget.set(previousBudget);
+            }
+        }
+
+        private Set<String> searchChunk() throws IOException {
+            // in LINE_MODE a match is in a line, the matches in the windows may cross the chunks boundary
+            long searchEnd = patternsSearch.searchesLines() ? end : Math.min(channel.size(), end + (long) patternsSearch.getOverlapSize() * MAX_BYTES_PER_CHAR);
+            if (patternsSearch.searchesBytes(charset)) {
+                return patternsSearch.findInBytes(channel, charset, start, searchEnd, stop);
+            }
+            FileInputStream chunkStream = new FileInputStream(file);
+            try {
+                chunkStream.getChannel().position(start);
+                Reader chunkReader = new FilterReader(new InputStreamReader(new BoundedInputStream(chunkStream, searchEnd - start), charset)) {
+                    @Override
+                    public int read(char[] buffer, int offset, int length) throws IOException {
+                        // end the chunk early if the other chunks found all the patterns
+                        return stop.get() ? -1 : super.read(buffer, offset, length);
+                    }
+                };
+                return patternsSearch.find(chunkReader);
+            } finally {
+                IOUtils.closeQuietly(chunkStream);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The testcase elements of a JUnit report, with what the matching of their failures needs and which doesn't depend on the tool arguments:
+ * the tests urls and names, the failures messages and the failures to compare. The parsed reports of the finished builds, and of the backup files
+ * for their size and modification time, are saved in the DiskResponseCache in a compact binary format, so the next runs match the failures
+ * of the reference builds without reading the reports again.
+ */
+class ParsedJUnitReport {
+    // changed when the parsing or the format changes, so the reports parsed by the previous versions are parsed again
+    static final int VERSION = 1;
+    private static final String CACHE_KEY_PREFIX = "parsedJUnitReport ";
+
+    final List<ParsedTestCase> testCases;
+
+    ParsedJUnitReport(List<ParsedTestCase> testCases) {
+        this.testCases = testCases;
+    }
+
+    /**
+     * A testcase element, the passing tests are kept only for their status in the stability list.
+     */
+    static class ParsedTestCase {
+        final String className;
+        final String shortTestName;
+        // the test url of the Jenkins test report, null for a test without failures
+        final String testUrl;
+        final List<ParsedFailure> failures;
+        final List<ParsedFailure> errors;
+        final List<ParsedFailure> skipped;
+
+        ParsedTestCase(String className, String shortTestName, String testUrl, List<ParsedFailure> failures, List<ParsedFailure> errors, List<ParsedFailure> skipped) {
+            this.className = className;
+            this.shortTestName = shortTestName;
+            this.testUrl = testUrl;
+            this.failures = failures;
+            this.errors = errors;
+            this.skipped = skipped;
+        }
+
+        String getTestName() {
+            return className.concat(".").concat(shortTestName);
+        }
+    }
+
+    /**
+     * A failure, error or skipped element.
+     */
+    static class ParsedFailure {
+        final String message;
+        // the first lines of the stacktrace and of the message, null if the texts of the failures were not read
+        final String failureToCompare;
+
+        ParsedFailure(String message, String failureToCompare) {
+            this.message = message;
+            this.failureToCompare = failureToCompare;
+        }
+    }
+
+    /**
+     * @param artifactVersion the version of the report content, e.g. the size and modification time of a backup file
+     * @return the report @artifactRelativePath of @nodeUrl saved in @diskResponseCache, or null if it is not saved
+     */
+    static ParsedJUnitReport getCached(DiskResponseCache diskResponseCache, String buildNumber, String nodeUrl, String artifactRelativePath, String artifactVersion) {
+        String cacheKey = getCacheKey(buildNumber, nodeUrl, artifactRelativePath, artifactVersion);
+        File cachedFile = diskResponseCache.getEntry(cacheKey);
+        if (cachedFile == null) {
+            return null;
+        }
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(cachedFile))));
+            return read(input);
+        } catch (IOException e) {
+            System.err.println("Got exception when reading the parsed JUnit report ".concat(cachedFile.getPath()).concat(", the report is parsed again: ").concat(e.toString()));
+            IOUtils.closeQuietly(input);
+            diskResponseCache.removeEntry(cacheKey);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Save this report as the report @artifactRelativePath of @nodeUrl in @diskResponseCache, for the @artifactVersion of its content.
+     */
+    void putCached(DiskResponseCache diskResponseCache, String buildNumber, String nodeUrl, String artifactRelativePath, String artifactVersion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(new GZIPOutputStream(bytes));
+        try {
+            write(output);
+        } finally {
+            output.close();
+        }
+        diskResponseCache.putEntry(getCacheKey(buildNumber, nodeUrl, artifactRelativePath, artifactVersion), bytes.toByteArray());
+    }
+
+    private static String getCacheKey(String buildNumber, String nodeUrl, String artifactRelativePath, String artifactVersion) {
+        return CACHE_KEY_PREFIX + VERSION + " " + buildNumber + " " + artifactVersion + " " + nodeUrl + " " + artifactRelativePath;
+    }
+
+    private void write(DataOutputStream output) throws IOException {
+        output.writeInt(VERSION);
+        output.writeInt(testCases.size());
+        for (ParsedTestCase testCase : testCases) {
+            writeString(output, testCase.className);
+            writeString(output, testCase.shortTestName);
+            writeString(output, testCase.testUrl);
+            writeFailures(output, testCase.failures);
+            writeFailures(output, testCase.errors);
+            writeFailures(output, testCase.skipped);
+        }
+    }
+
+    private static ParsedJUnitReport read(DataInputStream input) throws IOException {
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("The parsed report version is " + version + " instead of " + VERSION);
+        }
+        int testCasesCount = input.readInt();
+        List<ParsedTestCase> testCases = new ArrayList<>(testCasesCount);
+        for (int i = 0; i < testCasesCount; i++) {
+            testCases.add(new ParsedTestCase(readString(input), readString(input), readString(input), readFailures(input), readFailures(input), readFailures(input)));
+        }
+        return new ParsedJUnitReport(testCases);
+    }
+
+    private static void writeFailures(DataOutputStream output, List<ParsedFailure> failures) throws IOException {
+        output.writeInt(failures.size());
+        for (ParsedFailure failure : failures) {
+            writeString(output, failure.message);
+            writeString(output, failure.failureToCompare);
+        }
+    }
+
+    private static List<ParsedFailure> readFailures(DataInputStream input) throws IOException {
+        int failuresCount = input.readInt();
+        if (failuresCount == 0) {
+            return Collections.emptyList();
+        }
+        List<ParsedFailure> failures = new ArrayList<>(failuresCount);
+        for (int i = 0; i < failuresCount; i++) {
+            failures.add(new ParsedFailure(readString(input), readString(input)));
+        }
+        return failures;
+    }
+
+    /**
+     * Write @value as its UTF-8 bytes count and bytes, -1 for null, as writeUTF() is limited to 64KB.
+     */
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int bytesCount = input.readInt();
+        if (bytesCount == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[bytesCount];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
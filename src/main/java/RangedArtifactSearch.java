@@ -0,0 +1,250 @@
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+
+/**
+ * Searches the @searchedText patterns in a large artifact by downloading it in parallel HTTP Range chunks, so a node with
+ * a very large artifact doesn't hold up the other nodes results for as long.
+ * Each chunk also downloads the start of the next chunk, so the matches crossing the chunks boundary are found,
+ * and the other chunks downloads are stopped as soon as all the searched patterns are found.
+ * The chunks start at a char start, and in LINE_MODE each chunk starts after an end of line and ends after the end of its
+ * last line, so each line is searched whole by a single chunk, like ParallelFileSearch does with the chunks of a file.
+ */
+class RangedArtifactSearch {
+    static final long DEFAULT_MIN_SIZE_MB = 256;
+    static final long DEFAULT_CHUNK_SIZE_MB = 32;
+    // a char has at most 4 bytes in UTF-8
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final long minSize;
+    private final long chunkSize;
+    private final ExecutorService executorService;
+
+    /**
+     * @param minSizeMB       the artifacts smaller than this are downloaded sequentially
+     * @param chunkSizeMB     the size of each Range request
+     * @param threadPoolSize  the count of the chunks downloaded in parallel, for all the artifacts
+     */
+    RangedArtifactSearch(long minSizeMB, long chunkSizeMB, int threadPoolSize) {
+        this.minSize = minSizeMB * 1024 * 1024;
+        this.chunkSize = Math.max(chunkSizeMB, 1) * 1024 * 1024;
+        this.executorService = Executors.newFixedThreadPool(threadPoolSize, runnable -> {
+            Thread thread = new Thread(runnable, "ranged-artifact-search");
+            // the executor is not shut down, it is used until the end of the run
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return true if an artifact of @fileSize bytes is large enough to be downloaded in chunks, @fileSize is null if Jenkins doesn't report it
+     */
+    boolean isRangedArtifact(Long fileSize) {
+        return fileSize != null && fileSize >= minSize && fileSize > chunkSize;
+    }
+
+    /**
+     * @return the names of the @patternsSearch patterns found in the chunks of the artifact at @artifactUrl with @fileSize bytes,
+     * or null if the server doesn't support Range requests and the artifact needs to be downloaded sequentially
+     */
+    Set<String> find(String artifactUrl, long fileSize, MultiPatternSearch patternsSearch, String username, String password) throws IOException {
+        // the overlap is at least the window overlap, which is in chars without the end of lines, the lines are not split by the chunks
+        long overlapSize = patternsSearch.searchesLines() ? 0 : (long) patternsSearch.getOverlapSize() * MAX_BYTES_PER_CHAR;
+        AtomicBoolean stop = new AtomicBoolean();
+        // the chunks are searched by other threads, sharing the time budget of the artifact search
+        AtomicLong budget = RegexBudget.get();
+        CompletionService<Set<String>> completionService = new ExecutorCompletionService<>(executorService);
+        List<Future<Set<String>>> chunks = new ArrayList<>();
+        for (long start = 0; start < fileSize; start += chunkSize) {
+            long chunkStart = start;
+            long chunkEnd = Math.min(fileSize, start + chunkSize + overlapSize);
+            chunks.add(completionService.submit(() -> {
+                AtomicLong previousBudget = RegexBudget.set(budget);
+                try {
+                    return findInChunk(artifactUrl, chunkStart, chunkEnd, patternsSearch, stop, username, password);
+                } finally {
+                    RegexBudget.set(previousBudget);
+                }
+            }));
+        }
+        Set<String> found = new LinkedHashSet<>();
+        try {
+            // the results are merged in the order the chunks finish, so finding all the patterns ends the search without waiting for the other chunks
+            for (int i = 0; i < chunks.size(); i++) {
+                Set<String> chunkFound = completionService.take().get();
+                if (chunkFound == null) {
+                    found = null;
+                    break;
+                }
+                found.addAll(chunkFound);
+                if (found.size() == patternsSearch.getNames().size()) {
+                    break;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RegexBudget.BudgetExceededException) {
+                throw (RegexBudget.BudgetExceededException) e.getCause();
+            }
+            throw new IOException("Exception when searching the chunks of artifact URL " + artifactUrl, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted when searching the chunks of artifact URL " + artifactUrl, e);
+        } finally {
+            stop.set(true);
+            for (Future<Set<String>> chunk : chunks) {
+                chunk.cancel(false);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the names of the @patternsSearch patterns found in the bytes from @start to @end, excluded, of @artifactUrl,
+     * empty if @stop was set, or null if the server doesn't support Range requests or the content charset is not ASCII compatible.
+     * In LINE_MODE the chunk starts after the first end of line from @start - 1 and ends after the first end of line from @end - 1.
+     */
+    private static Set<String> findInChunk(String artifactUrl, long start, long end, MultiPatternSearch patternsSearch, AtomicBoolean stop, String username, String password) throws IOException {
+        if (stop.get()) {
+            return Collections.emptySet();
+        }
+        boolean alignsToLines = patternsSearch.searchesLines();
+        // the byte before the chunk tells if the chunk starts a line, and the end of the last line is not known before reading it
+        long rangeStart = alignsToLines && start > 0 ? start - 1 : start;
+        HttpGet httpGet = new HttpGet(URI.create(artifactUrl));
+        httpGet.addHeader(HttpHeaders.RANGE, "bytes=" + rangeStart + "-" + (alignsToLines ? "" : String.valueOf(end - 1)));
+        // the byte ranges are of the uncompressed content
+        httpGet.addHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+        CloseableHttpResponse response = null;
+        try {
+            response = Main.getUrlHttpResponse(httpGet, username, password);
+            Charset charset = Main.getResponseCharset(response);
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_PARTIAL_CONTENT || response.getEntity() == null
+                    || !MultiPatternSearch.isAsciiCompatible(charset)) {
+                // the chunks boundaries are found in the bytes, which is possible only if the ASCII chars are single bytes
+                return null;
+            }
+            InputStream chunkStream = new ChunkInputStream(response.getEntity().getContent(), rangeStart, start, end, alignsToLines, StandardCharsets.UTF_8.equals(charset));
+            Reader chunkReader = new FilterReader(new InputStreamReader(chunkStream, charset)) {
+                @Override
+                public int read(char[] buffer, int offset, int length) throws IOException {
+                    // end the chunk early if the other chunks found all the patterns
+                    return stop.get() ? -1 : super.read(buffer, offset, length);
+                }
+            };
+            return patternsSearch.find(chunkReader);
+        } finally {
+            // if the chunk was not read until the end, this closes the connection instead of downloading the rest of it
+            IOUtils.closeQuietly(response);
+        }
+    }
+
+    /**
+     * The bytes of a chunk from a Range response starting at @position. The bytes before @start and the UTF-8 continuation bytes
+     * at the start of the chunk are skipped, and in LINE_MODE the bytes are skipped until after the first end of line from @position,
+     * and the chunk ends after the first end of line from @end - 1.
+     */
+    private static class ChunkInputStream extends InputStream {
+        private final InputStream responseStream;
+        private final long start;
+        private final long end;
+        private final boolean alignsToLines;
+        // the position in the artifact of the next byte of the response
+        private long position;
+        private boolean skipping;
+        private boolean ended;
+
+        ChunkInputStream(InputStream responseStream, long position, long start, long end, boolean alignsToLines, boolean isUtf8) {
+            this.responseStream = responseStream;
+            this.position = position;
+            this.start = start;
+            this.end = end;
+            this.alignsToLines = alignsToLines;
+            this.skipping = position < start || (isUtf8 && start > 0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (!ended) {
+                int readCount = responseStream.read(buffer, offset, length);
+                if (readCount == -1) {
+                    ended = true;
+                    break;
+                }
+                long bufferPosition = position;
+                position += readCount;
+                int from = offset;
+                int to = offset + readCount;
+                if (skipping) {
+                    from = getStartIndex(buffer, from, to);
+                }
+                if (alignsToLines) {
+                    // the chunk ends with the line of the byte before @end
+                    int endIndex = offset + (int) Math.min(readCount, Math.max(0, end - 1 - bufferPosition));
+                    for (int i = Math.max(from, endIndex); i < to; i++) {
+                        if (buffer[i] == '\n') {
+                            to = i + 1;
+                            ended = true;
+                            break;
+                        }
+                    }
+                }
+                if (from < to) {
+                    System.arraycopy(buffer, from, buffer, offset, to - from);
+                    return to - from;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the index of the first byte of the chunk in @buffer from @from to @to, or @to if it is not in it
+         */
+        private int getStartIndex(byte[] buffer, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (alignsToLines ? buffer[i] == '\n' : (buffer[i] & 0xC0) != 0x80) {
+                    skipping = false;
+                    // the end of line before the chunk is skipped too
+                    return alignsToLines ? i + 1 : i;
+                }
+            }
+            return to;
+        }
+
+        @Override
+        public void close() throws IOException {
+            responseStream.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The time the regular expressions may run while searching an artifact, so a @searchedText with a catastrophic backtracking
+ * on an unlucky content doesn't keep a thread busy for hours. The budget is set for the current thread before searching
+ * an artifact, and the texts given to the regular expressions are wrapped by guard(), which charges the time spent
+ * reading them to the budget and throws a BudgetExceededException from charAt() once it is spent.
+ * Only the time in the regular expressions is counted, not the time waiting for the artifact download.
+ */
+class RegexBudget {
+    static final long DEFAULT_TIMEOUT_SECONDS = 300;
+    // the time is charged once for this count of chars read by a regular expression
+    private static final int CHECK_INTERVAL = 4096;
+    // the nanoseconds left for the search of the current thread, not set if there isn't any budget
+    private static final ThreadLocal<AtomicLong> BUDGET = new ThreadLocal<>();
+
+    private RegexBudget() {
+    }
+
+    /**
+     * Set a budget of @timeoutSeconds for the current thread, or remove it if @timeoutSeconds is <= 0.
+     *
+     * @return the previous budget, to restore with set()
+     */
+    static AtomicLong start(long timeoutSeconds) {
+        return set(timeoutSeconds > 0 ? new AtomicLong(TimeUnit.SECONDS.toNanos(timeoutSeconds)) : null);
+    }
+
+    /**
+     * Set the @budget of the current thread, or remove it if it is null.
+     * The tasks searching a part of an artifact in other threads share the budget of the artifact search.
+     *
+     * @return the previous budget
+     */
+    static AtomicLong set(AtomicLong budget) {
+        AtomicLong previousBudget = BUDGET.get();
+        if (budget == null) {
+            BUDGET.remove();
+        } else {
+            BUDGET.set(budget);
+        }
+        return previousBudget;
+    }
+
+    /**
+     * @return the budget of the current thread, or null if there isn't any
+     */
+    static AtomicLong get() {
+        return BUDGET.get();
+    }
+
+    /**
+     * @return @text to be matched by a regular expression, charging the time reading it to the budget of the current thread
+     */
+    static CharSequence guard(CharSequence text) {
+        AtomicLong budget = BUDGET.get();
+        return budget == null ? text : new BudgetCharSequence(text, budget, System.nanoTime());
+    }
+
+    /**
+     * Thrown when a regular expression is still running after the budget of the artifact search is spent.
+     */
+    static class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private static class BudgetCharSequence implements CharSequence {
+        private final CharSequence text;
+        private final AtomicLong budget;
+        // the time when the budget was last charged
+        private long chargedTime;
+        private int readCount;
+
+        BudgetCharSequence(CharSequence text, AtomicLong budget, long chargedTime) {
+            this.text = text;
+            this.budget = budget;
+            this.chargedTime = chargedTime;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++readCount % CHECK_INTERVAL == 0) {
+                long time = System.nanoTime();
+                long leftTime = budget.addAndGet(chargedTime - time);
+                chargedTime = time;
+                if (leftTime < 0) {
+                    throw new BudgetExceededException("The regular expression is still running after the search time budget is spent, at index " + index + " of " + text.length() + " chars");
+                }
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Limits the concurrent requests sent to each host and retries the failed requests, so a busy Jenkins is not flooded
+ * with requests when threadPoolSize is high and the artifacts are not skipped on a temporary error.
+ * The concurrent requests limit of a host grows by one request per limit responses while the latency stays near the
+ * lowest latency seen, and it is halved when a request fails, times out or gets a 429 or 5xx response (AIMD).
+ * A request counts against the limit until its response content is read until the end or closed, so the large artifacts
+ * downloads are limited too, and reading the content failing, e.g. on the HttpClientPool socket timeout, halves the limit.
+ * The failed requests are retried after a random delay up to an exponentially growing maximum delay, and so are the
+ * downloads of the contents which failed after the response headers were received, see retryContent().
+ */
+class RequestGovernor {
+    static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long BASE_RETRY_DELAY_MILLIS = 500;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+    // the limit doesn't grow if the latency is higher than this many times the lowest latency
+    private static final double LATENCY_TOLERANCE = 2;
+    // not defined by HttpStatus in this httpcore version
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    interface Request {
+        CloseableHttpResponse execute() throws IOException;
+    }
+
+    private static final Map<String, HostLimit> hostsLimits = new ConcurrentHashMap<>();
+    private static volatile int maxConcurrency = Runtime.getRuntime().availableProcessors();
+    private static volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    private static final AtomicLong requestsCount = new AtomicLong();
+    private static final AtomicLong retriesCount = new AtomicLong();
+    private static final AtomicLong throttledCount = new AtomicLong();
+    private static final AtomicLong failuresCount = new AtomicLong();
+
+    /**
+     * @param maxConcurrencyPerHost the maximum concurrent requests for a host, the limit starts from it
+     * @param maxRetriesCount       how many times a failed request is retried
+     */
+    static void init(int maxConcurrencyPerHost, int maxRetriesCount) {
+        maxConcurrency = Math.max(maxConcurrencyPerHost, 1);
+        maxRetries = Math.max(maxRetriesCount, 0);
+        hostsLimits.clear();
+    }
+
+    /**
+     * Execute @request for @httpGet when the host limit allows it, retrying it if it fails.
+     * The host slot is taken until the response content is read until the end or closed, or the response is closed,
+     * so the returned response has to be closed or its content read until the end.
+     *
+     * @return the response, which is not a 429 or a 5xx response
+     * @throws IOException if the last retry failed
+     */
+    static CloseableHttpResponse execute(HttpGet httpGet, Request request) throws IOException {
+        URI uri = httpGet.getURI();
+        HostLimit hostLimit = hostsLimits.computeIfAbsent(String.valueOf(uri.getHost()).toLowerCase(Locale.ENGLISH) + ":" + uri.getPort(), host -> new HostLimit());
+        requestsCount.incrementAndGet();
+        for (int attempt = 0; ; attempt++) {
+            hostLimit.acquire();
+            long startTime = System.nanoTime();
+            CloseableHttpResponse response;
+            try {
+                response = request.execute();
+            } catch (IOException e) {
+                hostLimit.release(false, 0);
+                if (attempt >= maxRetries) {
+                    failuresCount.incrementAndGet();
+                    throw e;
+                }
+                retry(httpGet, attempt, -1, e.toString());
+                continue;
+            }
+            int statusCode = response.getStatusLine().getStatusCode();
+            if (statusCode != SC_TOO_MANY_REQUESTS && statusCode < HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                return holdSlot(response, new HostSlot(hostLimit, System.nanoTime() - startTime));
+            }
+            hostLimit.release(false, 0);
+            long retryAfterMillis = getRetryAfterMillis(response);
+            // read the rest of the error response, so the connection is reused
+            EntityUtils.consumeQuietly(response.getEntity());
+            IOUtils.closeQuietly(response);
+            if (attempt >= maxRetries) {
+                failuresCount.incrementAndGet();
+                throw new IOException("Got HTTP status " + statusCode + " for URL " + uri + " after " + (attempt + 1) + " attempts.");
+            }
+            retry(httpGet, attempt, retryAfterMillis, "HTTP status " + statusCode);
+        }
+    }
+
+    /**
+     * Wait before downloading again the content of @url, after reading the content of its response failed with @e.
+     * The response is sent again by execute(), which retries the request itself if it fails.
+     *
+     * @param attempt the count of the previous content downloads retries
+     * @return false if the content download was already retried maxRetries times
+     */
+    static boolean retryContent(String url, int attempt, IOException e) throws IOException {
+        if (attempt >= maxRetries) {
+            failuresCount.incrementAndGet();
+            return false;
+        }
+        waitRetry(url, attempt, -1, e.toString());
+        return true;
+    }
+
+    /**
+     * @return @response, releasing @slot when its content is read until the end, reading it fails or it is closed
+     */
+    private static CloseableHttpResponse holdSlot(CloseableHttpResponse response, HostSlot slot) {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            slot.release(true);
+            return response;
+        }
+        response.setEntity(new HttpEntityWrapper(entity) {
+            @Override
+            public InputStream getContent() throws IOException {
+                return new SlotInputStream(super.getContent(), slot);
+            }
+        });
+        // the responses closed before their content is read until the end release the slot too
+        return (CloseableHttpResponse) Proxy.newProxyInstance(RequestGovernor.class.getClassLoader(), new Class<?>[]{CloseableHttpResponse.class}, (proxy, method, args) -> {
+            try {
+                return method.invoke(response, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if ("close".equals(method.getName())) {
+                    slot.release(true);
+                }
+            }
+        });
+    }
+
+    private static void retry(HttpGet httpGet, int attempt, long retryAfterMillis, String reason) throws IOException {
+        waitRetry(String.valueOf(httpGet.getURI()), attempt, retryAfterMillis, reason);
+        httpGet.reset();
+    }
+
+    private static void waitRetry(String url, int attempt, long retryAfterMillis, String reason) throws IOException {
+        retriesCount.incrementAndGet();
+        long maxDelayMillis = Math.min(MAX_RETRY_DELAY_MILLIS, BASE_RETRY_DELAY_MILLIS << attempt);
+        // the random delay spreads the retries of the requests which failed at the same time
+        long delayMillis = Math.max(retryAfterMillis, ThreadLocalRandom.current().nextLong(maxDelayMillis / 2, maxDelayMillis + 1));
+        System.err.println("Retrying in " + delayMillis + " ms the request for URL " + url + " after " + reason);
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted when waiting to retry the request for URL " + url, e);
+        }
+    }
+
+    /**
+     * @return the delay in milliseconds from the Retry-After header, or -1 if there isn't one
+     */
+    private static long getRetryAfterMillis(CloseableHttpResponse response) {
+        Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            return Math.min(MAX_RETRY_DELAY_MILLIS, Long.parseLong(retryAfter.getValue().trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // an HTTP date, the exponential delay is used instead
+            return -1;
+        }
+    }
+
+    /**
+     * @return the requests, retries, throttling and failures counts and the current limit of each host
+     */
+    static String getSummary() {
+        StringBuilder summary = new StringBuilder("HTTP requests: ").append(requestsCount.get()).append(" requests, ")
+                .append(retriesCount.get()).append(" retries, ").append(throttledCount.get()).append(" throttled, ")
+                .append(failuresCount.get()).append(" failed after retries");
+        for (Map.Entry<String, HostLimit> hostLimit : hostsLimits.entrySet()) {
+            summary.append("\n\t").append(hostLimit.getKey()).append(": ").append(hostLimit.getValue());
+        }
+        return summary.toString();
+    }
+
+    /**
+     * The slot of a request in the limit of its host, which is released once.
+     */
+    private static class HostSlot {
+        private final HostLimit hostLimit;
+        // the time until the response headers were received
+        private final long latencyNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        HostSlot(HostLimit hostLimit, long latencyNanos) {
+            this.hostLimit = hostLimit;
+            this.latencyNanos = latencyNanos;
+        }
+
+        void release(boolean success) {
+            if (released.compareAndSet(false, true)) {
+                hostLimit.release(success, latencyNanos);
+            }
+        }
+    }
+
+    /**
+     * The content of a response, which releases the slot of its request at its end, when reading it fails or when it is closed.
+     */
+    private static class SlotInputStream extends FilterInputStream {
+        private final HostSlot slot;
+
+        SlotInputStream(InputStream content, HostSlot slot) {
+            super(content);
+            this.slot = slot;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int read = super.read();
+                if (read == -1) {
+                    slot.release(true);
+                }
+                return read;
+            } catch (IOException e) {
+                slot.release(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int readCount = super.read(buffer, offset, length);
+                if (readCount == -1) {
+                    slot.release(true);
+                }
+                return readCount;
+            } catch (IOException e) {
+                slot.release(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                slot.release(true);
+            }
+        }
+    }
+
+    /**
+     * The concurrent requests limit for a host.
+     */
+    private static class HostLimit {
+        private double limit = maxConcurrency;
+        private int inFlight;
+        private long minLatencyNanos = Long.MAX_VALUE;
+        private int decreasesCount;
+
+        synchronized void acquire() throws IOException {
+            if (inFlight >= (int) limit) {
+                throttledCount.incrementAndGet();
+            }
+            while (inFlight >= (int) limit) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted when waiting to send a request.", e);
+                }
+            }
+            inFlight++;
+        }
+
+        synchronized void release(boolean success, long latencyNanos) {
+            inFlight--;
+            if (!success) {
+                limit = Math.max(1, limit / 2);
+                decreasesCount++;
+            } else {
+                minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+                if (latencyNanos <= LATENCY_TOLERANCE * minLatencyNanos) {
+                    limit = Math.min(maxConcurrency, limit + 1 / limit);
+                }
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "limit " + (int) limit + " of " + maxConcurrency + ", decreased " + decreasesCount + " times";
+        }
+    }
+}
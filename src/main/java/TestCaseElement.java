@@ -0,0 +1,32 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A testcase element of a JUnit report, with its failure, error and skipped elements, read by JUnitReportParser.
+ */
+class TestCaseElement {
+    final String className;
+    final String name;
+    final List<FailureElement> failures = new ArrayList<>();
+    final List<FailureElement> errors = new ArrayList<>();
+    final List<FailureElement> skipped = new ArrayList<>();
+
+    TestCaseElement(String className, String name) {
+        this.className = className;
+        this.name = name;
+    }
+
+    /**
+     * A failure, error or skipped element, with its message attribute and its text content, the stacktrace.
+     */
+    static class FailureElement {
+        final String message;
+        // null if the text content is not needed
+        String text;
+
+        FailureElement(String message, String text) {
+            this.message = message;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Searches the @searchedText regular expression in an artifact stream, compiling it only once. There are three search modes:
+ * - WINDOW_MODE, the default, keeps in memory only a bounded window of the content. The end of line chars are ignored,
+ * like in LEGACY_MODE, where the regular expression has to match the whole artifact content without them.
+ * A searched text like "(.*textToFind1.*)|(.*textToFind2.*)" matches the whole content if "textToFind1|textToFind2" is found
+ * anywhere in it, so this is what is searched in the window. The searched texts which cannot be rewritten like this
+ * are matched with the whole content, as in LEGACY_MODE.
+ * - LINE_MODE finds the @searchedText in each line, until the first line where it is found.
+ * - LEGACY_MODE matches the @searchedText with the whole content without the end of lines, as the first versions of the tool.
+ * The regular expressions stop when the time budget of the artifact search is spent, see RegexBudget.
+ */
+class TextSearch {
+    static final String WINDOW_MODE = "window";
+    static final String LINE_MODE = "line";
+    static final String LEGACY_MODE = "legacy";
+    static final int DEFAULT_WINDOW_SIZE = 1024 * 1024;
+    private static final String ANY_CHARS = ".*";
+    private static final int BUFFER_SIZE = 8192;
+
+    final String searchedText;
+    final String searchMode;
+    // the @searchedText compiled, null if it is empty
+    private final Pattern searchedPattern;
+    private final int windowSize;
+    private final int overlapSize;
+    // the pattern to find in the window, it is null if the @searchedText cannot be matched in a window
+    private final Pattern findPattern;
+    // true if the @searchedText matches any content, like ".*"
+    private final boolean matchesAnyContent;
+    // the literals required by the @searchedText, null if they can't be extracted
+    private final LiteralPrefilter prefilter;
+    // the regular expressions of findPattern, one for each alternative
+    private final List<String> cores;
+
+    TextSearch(String searchedText, String searchMode, int windowSize) {
+        Validate.isTrue(WINDOW_MODE.equals(searchMode) || LINE_MODE.equals(searchMode) || LEGACY_MODE.equals(searchMode),
+                "The search mode should be " + WINDOW_MODE + ", " + LINE_MODE + " or " + LEGACY_MODE + ", not: " + searchMode);
+        this.searchedText = searchedText;
+        this.searchMode = searchMode;
+        this.searchedPattern = searchedText.isEmpty() ? null : Pattern.compile(searchedText);
+        this.windowSize = Math.max(windowSize, 2);
+        // the matches up to the overlap size are found even if they cross the windows boundary
+        this.overlapSize = this.windowSize / 4;
+        // a searched text like ".*textToFind.*" is found in a line or a window if "textToFind" is found in it,
+        // which avoids trying to match the leading ".*" from each position
+        List<String> findPatterns = getFindPatterns(searchedText);
+        List<String> cores = LEGACY_MODE.equals(searchMode) ? null : findPatterns;
+        boolean matchesAnyContent = false;
+        String findRegex = null;
+        if (cores != null) {
+            for (String core : cores) {
+                matchesAnyContent = matchesAnyContent || core.isEmpty();
+                findRegex = findRegex == null ? "(?:".concat(core).concat(")") : findRegex.concat("|(?:").concat(core).concat(")");
+            }
+        }
+        this.matchesAnyContent = searchedPattern == null || matchesAnyContent;
+        this.findPattern = findRegex == null ? null : Pattern.compile(findRegex);
+        this.cores = cores;
+        // the line or the window has to contain a literal of one of the alternatives, LEGACY_MODE runs the @searchedText as it is
+        this.prefilter = LEGACY_MODE.equals(searchMode) ? null : LiteralPrefilter.create(findPatterns);
+    }
+
+    /**
+     * @return true if the @searchedText matches the content read from @reader, ignoring the end of line chars,
+     * or if it is found in a line of the content in LINE_MODE.
+     * It reads the content only until the first match, except in LEGACY_MODE.
+     */
+    boolean find(Reader reader) throws IOException {
+        if (matchesAnyContent) {
+            return true;
+        }
+        if (LINE_MODE.equals(searchMode)) {
+            Pattern linePattern = findPattern == null ? searchedPattern : findPattern;
+            return scanLines(reader, line -> (prefilter == null || prefilter.isIn(line)) && linePattern.matcher(RegexBudget.guard(line)).find());
+        }
+        if (findPattern == null) {
+            return matches(IOUtils.toString(reader));
+        }
+        return scanWindows(reader, windowSize, overlapSize, this::windowMatches);
+    }
+
+    /**
+     * Read the lines from @reader until @lineMatches returns true for a line.
+     *
+     * @return true if @lineMatches returned true
+     */
+    static boolean scanLines(Reader reader, Predicate<String> lineMatches) throws IOException {
+        BufferedReader lineReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, BUFFER_SIZE);
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            if (lineMatches.test(line)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the content from @reader without the end of line chars in windows of @windowSize chars, each window starting
+     * with the last @overlapSize chars of the previous one, until @windowMatches returns true for a window.
+     *
+     * @return true if @windowMatches returned true
+     */
+    static boolean scanWindows(Reader reader, int windowSize, int overlapSize, Predicate<CharSequence> windowMatches) throws IOException {
+        StringBuilder window = new StringBuilder(windowSize + BUFFER_SIZE);
+        char[] buffer = new char[BUFFER_SIZE];
+        int readCount;
+        while ((readCount = reader.read(buffer)) != -1) {
+            // append the chars between the end of lines in bulk
+            int start = 0;
+            for (int i = 0; i < readCount; i++) {
+                char c = buffer[i];
+                if (c == '\n' || c == '\r') {
+                    window.append(buffer, start, i - start);
+                    start = i + 1;
+                }
+            }
+            window.append(buffer, start, readCount - start);
+            if (window.length() >= windowSize) {
+                if (windowMatches.test(window)) {
+                    return true;
+                }
+                // keep the end of the window, for the matches crossing the windows boundary
+                window.delete(0, window.length() - overlapSize);
+            }
+        }
+        return windowMatches.test(window);
+    }
+
+    /**
+     * @return true if the findPattern is found in @window, running it only if the window contains a required literal
+     */
+    private boolean windowMatches(CharSequence window) {
+        return (prefilter == null || prefilter.indexIn(window, 0) != -1) && findPattern.matcher(RegexBudget.guard(window)).find();
+    }
+
+    /**
+     * @return true if the @searchedText is found in @part, which is a line in LINE_MODE or a window otherwise.
+     * It is used only if searchesInWindows() is true.
+     */
+    boolean partMatches(CharSequence part) {
+        if (matchesAnyContent) {
+            return true;
+        }
+        Pattern partPattern = findPattern == null ? searchedPattern : findPattern;
+        return (prefilter == null || prefilter.indexIn(part, 0) != -1) && partPattern.matcher(RegexBudget.guard(part)).find();
+    }
+
+    /**
+     * @return true if the @searchedText matches @content, like find() does for a content read from a Reader
+     */
+    boolean matches(String content) {
+        if (matchesAnyContent) {
+            return true;
+        }
+        if (LINE_MODE.equals(searchMode)) {
+            Pattern linePattern = findPattern == null ? searchedPattern : findPattern;
+            for (String line : content.split("\r?\n|\r")) {
+                if ((prefilter == null || prefilter.isIn(line)) && linePattern.matcher(RegexBudget.guard(line)).find()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (findPattern == null) {
+            return matchesWholeContent(content);
+        }
+        // the literals may be split by the end of lines, which are not matched
+        String contentWithoutEndOfLines = removeEndOfLines(content);
+        return (prefilter == null || prefilter.isIn(contentWithoutEndOfLines)) && findPattern.matcher(RegexBudget.guard(contentWithoutEndOfLines)).find();
+    }
+
+    /**
+     * @return true if the @searchedText matches all the @content without the end of lines
+     */
+    private boolean matchesWholeContent(String content) {
+        return searchedPattern.matcher(RegexBudget.guard(removeEndOfLines(content))).matches();
+    }
+
+    /**
+     * @return @content without the "\r\n" and "\n" end of lines, in one pass over it
+     */
+    static String removeEndOfLines(String content) {
+        StringBuilder result = null;
+        int start = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            boolean isEndOfLine = c == '\n' || (c == '\r' && i + 1 < content.length() && content.charAt(i + 1) == '\n');
+            if (!isEndOfLine) {
+                continue;
+            }
+            result = result == null ? new StringBuilder(content.length()) : result;
+            result.append(content, start, i);
+            if (c == '\r') {
+                i++;
+            }
+            start = i + 1;
+        }
+        return result == null ? content : result.append(content, start, content.length()).toString();
+    }
+
+    /**
+     * @return true if the @searchedText is searched in windows, so any part of the content can be searched separately
+     */
+    boolean searchesInWindows() {
+        return matchesAnyContent || findPattern != null || LINE_MODE.equals(searchMode);
+    }
+
+    /**
+     * @return the size of the end of a window which is searched again with the next window
+     */
+    int getOverlapSize() {
+        return overlapSize;
+    }
+
+    int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return true if the @searchedText matches any content, like ".*"
+     */
+    boolean matchesAnyContent() {
+        return matchesAnyContent;
+    }
+
+    /**
+     * @return the regular expressions found in a window or a line instead of the @searchedText, one for each alternative,
+     * or null if the @searchedText is matched as it is
+     */
+    List<String> getCores() {
+        return cores;
+    }
+
+    /**
+     * @return the regular expressions to find in the content for each alternative of @searchedText,
+     * or null if an alternative doesn't start and end with ".*" or the rest of it may match an unbounded content
+     */
+    static List<String> getFindPatterns(String searchedText) {
+        if (searchedText.contains("\\Q")) {
+            // the quoted chars are not split in alternatives correctly
+            return null;
+        }
+        List<String> cores = new ArrayList<>();
+        return addFindPatterns(searchedText, cores) ? cores : null;
+    }
+
+    /**
+     * Add the regular expressions to find for each top level alternative of @regex to @cores, the alternatives of a group
+     * enclosing all of an alternative are split again, e.g. "((.*a.*)|(.*b.*))" adds "a" and "b".
+     *
+     * @return false if an alternative doesn't start and end with ".*", e.g. "(.*a|b.*)", or the rest of it may match an unbounded content
+     */
+    private static boolean addFindPatterns(String regex, List<String> cores) {
+        List<String> alternatives = splitAlternatives(regex);
+        for (String alternative : alternatives) {
+            alternative = unwrapGroups(alternative);
+            if (splitAlternatives(alternative).size() > 1) {
+                // the alternatives of the unwrapped group need their own ".*"
+                if (!addFindPatterns(alternative, cores)) {
+                    return false;
+                }
+                continue;
+            }
+            if (alternative.equals(ANY_CHARS)) {
+                cores.add("");
+                continue;
+            }
+            if (alternative.length() < 2 * ANY_CHARS.length() || !alternative.startsWith(ANY_CHARS) || !endsWithAnyChars(alternative)) {
+                return false;
+            }
+            String core = alternative.substring(ANY_CHARS.length(), alternative.length() - ANY_CHARS.length());
+            if (!core.isEmpty() && "*+?{".indexOf(core.charAt(0)) != -1) {
+                return false;
+            }
+            if (!isWindowSearchable(core)) {
+                return false;
+            }
+            cores.add(core);
+        }
+        return true;
+    }
+
+    /**
+     * @return the top level alternatives of @regex, the ones separated by "|" outside the groups and chars classes
+     */
+    static List<String> splitAlternatives(String regex) {
+        List<String> alternatives = new ArrayList<>();
+        int depth = 0;
+        boolean inCharClass = false;
+        int start = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inCharClass) {
+                inCharClass = c != ']';
+            } else if (c == '[') {
+                inCharClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                alternatives.add(regex.substring(start, i));
+                start = i + 1;
+            }
+        }
+        alternatives.add(regex.substring(start));
+        return alternatives;
+    }
+
+    /**
+     * @return @regex without the capturing or non capturing groups enclosing all of it, e.g. "((?:a))" returns "a"
+     */
+    static String unwrapGroups(String regex) {
+        while (regex.startsWith("(") && regex.endsWith(")") && closingParenthesisIndex(regex, 0) == regex.length() - 1) {
+            if (regex.startsWith("(?:")) {
+                regex = regex.substring(3, regex.length() - 1);
+            } else if (regex.startsWith("(?")) {
+                // a lookaround, a named group or flags
+                return regex;
+            } else {
+                regex = regex.substring(1, regex.length() - 1);
+            }
+        }
+        return regex;
+    }
+
+    /**
+     * @return the index of the ")" closing the group opened at @openIndex in @regex, or -1 if there isn't one
+     */
+    static int closingParenthesisIndex(String regex, int openIndex) {
+        int depth = 0;
+        boolean inCharClass = false;
+        for (int i = openIndex; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inCharClass) {
+                inCharClass = c != ']';
+            } else if (c == '[') {
+                inCharClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if @regex ends with an unescaped ".*"
+     */
+    private static boolean endsWithAnyChars(String regex) {
+        if (!regex.endsWith(ANY_CHARS)) {
+            return false;
+        }
+        int backslashesCount = 0;
+        for (int i = regex.length() - ANY_CHARS.length() - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashesCount++;
+        }
+        return backslashesCount % 2 == 0;
+    }
+
+    /**
+     * @return false if @regex contains anchors, flags, lookarounds or an unbounded quantifier like "*", "+" or "{n,}",
+     * which may match a content longer than a window or may match differently when searched in a window
+     */
+    private static boolean isWindowSearchable(String regex) {
+        boolean inCharClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            char next = i + 1 < regex.length() ? regex.charAt(i + 1) : 0;
+            if (c == '\\') {
+                // the boundary matchers and the back references depend on the content outside the match
+                if (!inCharClass && "bBAGZzk123456789".indexOf(next) != -1) {
+                    return false;
+                }
+                i++;
+            } else if (inCharClass) {
+                inCharClass = c != ']';
+            } else if (c == '[') {
+                inCharClass = true;
+            } else if (c == '^' || c == '$') {
+                return false;
+            } else if (c == '(' && next == '?' && i + 2 < regex.length()) {
+                char groupType = regex.charAt(i + 2);
+                char lookbehindType = i + 3 < regex.length() ? regex.charAt(i + 3) : 0;
+                // the inline flags, and the lookarounds which may look at the content before or after the window
+                if ("=!<>:".indexOf(groupType) == -1 || groupType == '=' || groupType == '!'
+                        || (groupType == '<' && (lookbehindType == '=' || lookbehindType == '!'))) {
+                    return false;
+                }
+            } else if (c == '*' || c == '+') {
+                // any repeated atom, e.g. "[^#]*" or "\S+", may match across all the windows
+                return false;
+            } else if (c == '{') {
+                int closingIndex = regex.indexOf('}', i);
+                if (closingIndex == -1 || regex.charAt(closingIndex - 1) == ',') {
+                    return false;
+                }
+                i = closingIndex;
+            }
+        }
+        return true;
+    }
+}
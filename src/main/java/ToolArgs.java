@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -13,10 +14,11 @@ import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections4.map.HashedMap;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.Validate;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
 
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
@@ -34,23 +36,44 @@ public class ToolArgs implements Cloneable {
     private static final String NEW_URL_PREFIX2 = "newUrlPrefix2";
     private static final String SEARCH_IN_JUNIT_REPORTS = "searchInJUnitReports";
     private static final String THREAD_POOL_SIZE = "threadPoolSize";
+    private static final String IO_THREAD_POOL_SIZE = "ioThreadPoolSize";
+    private static final String CPU_THREAD_POOL_SIZE = "cpuThreadPoolSize";
+    private static final String PARSER_QUEUE_SIZE = "parserQueueSize";
+    private static final String HTTP_MAX_CONNECTIONS = "httpMaxConnections";
+    private static final String HTTP_MAX_CONNECTIONS_PER_ROUTE = "httpMaxConnectionsPerRoute";
+    private static final String HTTP_KEEP_ALIVE_SECONDS = "httpKeepAliveSeconds";
+    private static final String HTTP_CONNECT_TIMEOUT_SECONDS = "httpConnectTimeoutSeconds";
+    private static final String HTTP_SOCKET_TIMEOUT_SECONDS = "httpSocketTimeoutSeconds";
+    private static final String HTTP_MAX_RETRIES = "httpMaxRetries";
     private static final String BUILDS = "builds";
     private static final String LAST_BUILDS_COUNT = "lastBuildsCount";
     private static final String BUILDS_FROM_LAST_X_HOURS = "buildsFromLastXHours";
     private static final String REFERENCE_BUILDS_FROM_LAST_X_HOURS = "referenceBuildsFromLastXHours";
     private static final String PREVIOUS_BUILDS_ONLY = "previousBuildsOnly";
     private static final String ARTIFACTS = "artifactsFilters";
+    private static final String BULK_ARTIFACTS_DOWNLOAD = "bulkArtifactsDownload";
     private static final String BUILD_PARAMS_FILTER = "buildParamsFilter";
     private static final String REFERENCE_BUILD_PARAMS_FILTER = "referenceBuildParamsFilter";
     private static final String NODE_URL_FILTER = "nodeUrlFilter";
     private static final String SEARCHED_TEXT = "searchedText";
+    private static final String SEARCH_WINDOW_SIZE = "searchWindowSize";
+    private static final String SEARCH_MODE = "searchMode";
+    private static final String RANGED_DOWNLOAD_MIN_SIZE_MB = "rangedDownloadMinSizeMB";
+    private static final String PARALLEL_SEARCH_MIN_SIZE_MB = "parallelSearchMinSizeMB";
+    private static final String MAX_MATCHES_PER_ARTIFACT = "maxMatchesPerArtifact";
+    private static final String MATCH_CONTEXT_LINES = "matchContextLines";
+    private static final String REGEX_TIMEOUT_SECONDS = "regexTimeoutSeconds";
+    private static final String RANGED_DOWNLOAD_CHUNK_SIZE_MB = "rangedDownloadChunkSizeMB";
     private static final String GROUP_TESTS_FAILURES = "groupTestsFailures";
+    private static final String JUNIT_REPORT_PARSER = "jUnitReportParser";
     private static final String DIFF_THRESHOLD = "diffThreshold";
     private static final String BACKUP_JOB = "backupJob";
     private static final String USE_BACKUP = "useBackup";
     private static final String REMOVE_BACKUP = "removeBackup";
     private static final String BACKUP_PATH = "backupPath";
     private static final String BACKUP_RETENTION = "backupRetention";
+    private static final String HTTP_CACHE_DIR = "httpCacheDir";
+    private static final String HTTP_CACHE_MAX_SIZE_MB = "httpCacheMaxSizeMB";
     private static final String REFERENCE_BUILDS = "referenceBuilds";
     private static final String LAST_REFERENCE_BUILDS_COUNT = "lastReferenceBuildsCount";
     private static final String SHOW_TESTS_DIFFERENCES = "showTestsDifferences";
@@ -77,10 +100,54 @@ public class ToolArgs implements Cloneable {
     String newUrlPrefix;
     String newUrlPrefix2;
     String backupPath;
+    String httpCacheDir;
+    Long httpCacheMaxSizeMB;
+    private String httpCacheMaxSizeMBString;
+    DiskResponseCache diskResponseCache;
     String artifactsFilters;
+    Boolean bulkArtifactsDownload;
+    private String bulkArtifactsDownloadString;
+    // the globs for downloading the node artifacts in one archive, null if the bulk download is not used
+    List<String> artifactsGlobs;
     String searchedText;
+    Integer searchWindowSize;
+    String searchMode;
+    private String searchWindowSizeString;
+    MultiPatternSearch patternsSearch;
+    Long rangedDownloadMinSizeMB;
+    private String rangedDownloadMinSizeMBString;
+    Long rangedDownloadChunkSizeMB;
+    private String rangedDownloadChunkSizeMBString;
+    RangedArtifactSearch rangedArtifactSearch;
+    Long parallelSearchMinSizeMB;
+    private String parallelSearchMinSizeMBString;
+    ParallelFileSearch parallelFileSearch;
+    Integer maxMatchesPerArtifact;
+    private String maxMatchesPerArtifactString;
+    Integer matchContextLines;
+    private String matchContextLinesString;
+    Long regexTimeoutSeconds;
+    private String regexTimeoutSecondsString;
     Integer threadPoolSize;
     private String threadPoolSizeString;
+    Integer ioThreadPoolSize;
+    private String ioThreadPoolSizeString;
+    Integer cpuThreadPoolSize;
+    private String cpuThreadPoolSizeString;
+    Integer parserQueueSize;
+    private String parserQueueSizeString;
+    Integer httpMaxConnections;
+    private String httpMaxConnectionsString;
+    Integer httpMaxConnectionsPerRoute;
+    private String httpMaxConnectionsPerRouteString;
+    Integer httpKeepAliveSeconds;
+    private String httpKeepAliveSecondsString;
+    Integer httpConnectTimeoutSeconds;
+    private String httpConnectTimeoutSecondsString;
+    Integer httpSocketTimeoutSeconds;
+    private String httpSocketTimeoutSecondsString;
+    Integer httpMaxRetries;
+    private String httpMaxRetriesString;
     Integer lastBuildsCount;
     private String lastBuildsCountString;
     Integer buildsFromLastXHours;
@@ -99,6 +166,7 @@ public class ToolArgs implements Cloneable {
     private String searchInJUnitReportsString;
     Boolean groupTestsFailures;
     private String groupTestsFailuresString;
+    String jUnitReportParser;
     Boolean showTestsDifferences;
     private String showTestsDifferencesString;
     Boolean backupJob;
@@ -128,6 +196,7 @@ public class ToolArgs implements Cloneable {
     Map<String, String> referenceBuildParamsFilter;
     private String referenceBuildParamsFilterString;
     String nodeUrlFilter;
+    FilterEngine filterEngine;
     HtmlGenerator htmlGenerator;
     StabilityListParser stabilityListParser;
     Double stabilityRate;
@@ -173,6 +242,40 @@ public class ToolArgs implements Cloneable {
         threadPoolSizeString = getNonEmptyValue(THREAD_POOL_SIZE, threadPoolSizeString);
         threadPoolSize = isEmpty(threadPoolSizeString) ? 0 : Integer.parseInt(threadPoolSizeString);
         System.out.println("Parameter ".concat(THREAD_POOL_SIZE).concat("=").concat(threadPoolSize.toString()));
+        // the threads downloading the artifacts, threadPoolSize is kept as the default value for backward compatibility
+        ioThreadPoolSizeString = getNonEmptyValue(IO_THREAD_POOL_SIZE, ioThreadPoolSizeString);
+        ioThreadPoolSize = isEmpty(ioThreadPoolSizeString) ? threadPoolSize : Integer.parseInt(ioThreadPoolSizeString);
+        System.out.println("Parameter " + IO_THREAD_POOL_SIZE + "=" + ioThreadPoolSize);
+        // the threads parsing the downloaded artifacts
+        cpuThreadPoolSizeString = getNonEmptyValue(CPU_THREAD_POOL_SIZE, cpuThreadPoolSizeString);
+        cpuThreadPoolSize = isEmpty(cpuThreadPoolSizeString) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(cpuThreadPoolSizeString);
+        cpuThreadPoolSize = cpuThreadPoolSize <= 0 ? Runtime.getRuntime().availableProcessors() : cpuThreadPoolSize;
+        System.out.println("Parameter " + CPU_THREAD_POOL_SIZE + "=" + cpuThreadPoolSize);
+        // the maximum count of the downloaded artifacts waiting to be parsed
+        parserQueueSizeString = getNonEmptyValue(PARSER_QUEUE_SIZE, parserQueueSizeString);
+        parserQueueSize = isEmpty(parserQueueSizeString) ? cpuThreadPoolSize * 2 : Integer.parseInt(parserQueueSizeString);
+        System.out.println("Parameter " + PARSER_QUEUE_SIZE + "=" + parserQueueSize);
+        // the connections pool is shared by all the threads, so by default allow a connection per I/O thread for the Jenkins host
+        httpMaxConnectionsPerRouteString = getNonEmptyValue(HTTP_MAX_CONNECTIONS_PER_ROUTE, httpMaxConnectionsPerRouteString);
+        httpMaxConnectionsPerRoute = isEmpty(httpMaxConnectionsPerRouteString) ? (ioThreadPoolSize > 0 ? ioThreadPoolSize : Runtime.getRuntime().availableProcessors()) : Integer.parseInt(httpMaxConnectionsPerRouteString);
+        System.out.println("Parameter " + HTTP_MAX_CONNECTIONS_PER_ROUTE + "=" + httpMaxConnectionsPerRoute);
+        httpMaxConnectionsString = getNonEmptyValue(HTTP_MAX_CONNECTIONS, httpMaxConnectionsString);
+        httpMaxConnections = isEmpty(httpMaxConnectionsString) ? httpMaxConnectionsPerRoute * 2 : Integer.parseInt(httpMaxConnectionsString);
+        System.out.println("Parameter " + HTTP_MAX_CONNECTIONS + "=" + httpMaxConnections);
+        httpKeepAliveSecondsString = getNonEmptyValue(HTTP_KEEP_ALIVE_SECONDS, httpKeepAliveSecondsString);
+        httpKeepAliveSeconds = isEmpty(httpKeepAliveSecondsString) ? HttpClientPool.DEFAULT_KEEP_ALIVE_SECONDS : Integer.parseInt(httpKeepAliveSecondsString);
+        System.out.println("Parameter " + HTTP_KEEP_ALIVE_SECONDS + "=" + httpKeepAliveSeconds);
+        httpConnectTimeoutSecondsString = getNonEmptyValue(HTTP_CONNECT_TIMEOUT_SECONDS, httpConnectTimeoutSecondsString);
+        httpConnectTimeoutSeconds = isEmpty(httpConnectTimeoutSecondsString) ? HttpClientPool.DEFAULT_CONNECT_TIMEOUT_SECONDS : Integer.parseInt(httpConnectTimeoutSecondsString);
+        System.out.println("Parameter " + HTTP_CONNECT_TIMEOUT_SECONDS + "=" + httpConnectTimeoutSeconds);
+        httpSocketTimeoutSecondsString = getNonEmptyValue(HTTP_SOCKET_TIMEOUT_SECONDS, httpSocketTimeoutSecondsString);
+        httpSocketTimeoutSeconds = isEmpty(httpSocketTimeoutSecondsString) ? HttpClientPool.DEFAULT_SOCKET_TIMEOUT_SECONDS : Integer.parseInt(httpSocketTimeoutSecondsString);
+        System.out.println("Parameter " + HTTP_SOCKET_TIMEOUT_SECONDS + "=" + httpSocketTimeoutSeconds);
+        HttpClientPool.init(httpMaxConnections, httpMaxConnectionsPerRoute, httpKeepAliveSeconds, httpConnectTimeoutSeconds, httpSocketTimeoutSeconds);
+        httpMaxRetriesString = getNonEmptyValue(HTTP_MAX_RETRIES, httpMaxRetriesString);
+        httpMaxRetries = isEmpty(httpMaxRetriesString) ? RequestGovernor.DEFAULT_MAX_RETRIES : Integer.parseInt(httpMaxRetriesString);
+        System.out.println("Parameter " + HTTP_MAX_RETRIES + "=" + httpMaxRetries);
+        RequestGovernor.init(httpMaxConnectionsPerRoute, httpMaxRetries);
         buildsString = getNonEmptyValue(BUILDS, buildsString);
         builds = parseBuilds(buildsString);
         lastBuildsCountString = getNonEmptyValue(LAST_BUILDS_COUNT, lastBuildsCountString);
@@ -184,6 +287,13 @@ public class ToolArgs implements Cloneable {
         artifactsFilters = getNonEmptyValue(ARTIFACTS, artifactsFilters);
         artifactsFilters = artifactsFilters == null ? "" : artifactsFilters;
         System.out.println("Parameter ".concat(ARTIFACTS).concat("=").concat(artifactsFilters));
+        bulkArtifactsDownloadString = getNonEmptyValue(BULK_ARTIFACTS_DOWNLOAD, bulkArtifactsDownloadString);
+        bulkArtifactsDownload = isEmpty(bulkArtifactsDownloadString) ? false : Boolean.valueOf(bulkArtifactsDownloadString);
+        System.out.println("Parameter " + BULK_ARTIFACTS_DOWNLOAD + "=" + bulkArtifactsDownload);
+        artifactsGlobs = bulkArtifactsDownload ? JenkinsApi.getArtifactsGlobs(artifactsFilters) : null;
+        if (bulkArtifactsDownload && artifactsGlobs == null) {
+            System.out.println("The " + ARTIFACTS + " cannot be written as globs, the artifacts are downloaded one by one.");
+        }
         buildParamsFilterString = getNonEmptyValue(BUILD_PARAMS_FILTER, buildParamsFilterString);
         buildParamsFilter = parseKeyValuesIntoMap(buildParamsFilterString == null ? "" : buildParamsFilterString);
         System.out.println("Parameter ".concat(BUILD_PARAMS_FILTER).concat("=").concat(buildParamsFilter.toString()));
@@ -194,12 +304,52 @@ public class ToolArgs implements Cloneable {
         nodeUrlFilter = getNonEmptyValue(NODE_URL_FILTER, nodeUrlFilter);
         nodeUrlFilter = isEmpty(nodeUrlFilter) ? "" : nodeUrlFilter;
         System.out.println("Parameter ".concat(NODE_URL_FILTER).concat("=").concat(nodeUrlFilter));
+        filterEngine = new FilterEngine(artifactsFilters, nodeUrlFilter);
         searchedText = getNonEmptyValue(SEARCHED_TEXT, searchedText);
         searchedText = searchedText == null ? "" : searchedText;
         System.out.println("Parameter ".concat(SEARCHED_TEXT).concat("=").concat(searchedText));
+        // the maximum chars count of an artifact kept in memory while searching the text
+        searchWindowSizeString = getNonEmptyValue(SEARCH_WINDOW_SIZE, searchWindowSizeString);
+        searchWindowSize = isEmpty(searchWindowSizeString) ? TextSearch.DEFAULT_WINDOW_SIZE : Integer.parseInt(searchWindowSizeString);
+        System.out.println("Parameter " + SEARCH_WINDOW_SIZE + "=" + searchWindowSize);
+        searchMode = getNonEmptyValue(SEARCH_MODE, searchMode);
+        searchMode = isEmpty(searchMode) ? TextSearch.WINDOW_MODE : searchMode;
+        System.out.println("Parameter " + SEARCH_MODE + "=" + searchMode);
+        patternsSearch = new MultiPatternSearch(MultiPatternSearch.parsePatterns(searchedText), searchMode, searchWindowSize);
+        // the lines where the patterns are found are recorded only if the max matches count is > 0, see MatchLocator
+        maxMatchesPerArtifactString = getNonEmptyValue(MAX_MATCHES_PER_ARTIFACT, maxMatchesPerArtifactString);
+        maxMatchesPerArtifact = isEmpty(maxMatchesPerArtifactString) ? 0 : Integer.parseInt(maxMatchesPerArtifactString);
+        System.out.println("Parameter " + MAX_MATCHES_PER_ARTIFACT + "=" + maxMatchesPerArtifact);
+        matchContextLinesString = getNonEmptyValue(MATCH_CONTEXT_LINES, matchContextLinesString);
+        matchContextLines = isEmpty(matchContextLinesString) ? MatchLocator.DEFAULT_CONTEXT_LINES : Math.max(0, Integer.parseInt(matchContextLinesString));
+        System.out.println("Parameter " + MATCH_CONTEXT_LINES + "=" + matchContextLines);
+        // the time budget of the regular expressions for each artifact, 0 disables it
+        regexTimeoutSecondsString = getNonEmptyValue(REGEX_TIMEOUT_SECONDS, regexTimeoutSecondsString);
+        regexTimeoutSeconds = isEmpty(regexTimeoutSecondsString) ? RegexBudget.DEFAULT_TIMEOUT_SECONDS : Long.parseLong(regexTimeoutSecondsString);
+        System.out.println("Parameter " + REGEX_TIMEOUT_SECONDS + "=" + regexTimeoutSeconds);
+        rangedDownloadMinSizeMBString = getNonEmptyValue(RANGED_DOWNLOAD_MIN_SIZE_MB, rangedDownloadMinSizeMBString);
+        rangedDownloadMinSizeMB = isEmpty(rangedDownloadMinSizeMBString) ? RangedArtifactSearch.DEFAULT_MIN_SIZE_MB : Long.parseLong(rangedDownloadMinSizeMBString);
+        System.out.println("Parameter " + RANGED_DOWNLOAD_MIN_SIZE_MB + "=" + rangedDownloadMinSizeMB);
+        rangedDownloadChunkSizeMBString = getNonEmptyValue(RANGED_DOWNLOAD_CHUNK_SIZE_MB, rangedDownloadChunkSizeMBString);
+        rangedDownloadChunkSizeMB = isEmpty(rangedDownloadChunkSizeMBString) ? RangedArtifactSearch.DEFAULT_CHUNK_SIZE_MB : Long.parseLong(rangedDownloadChunkSizeMBString);
+        System.out.println("Parameter " + RANGED_DOWNLOAD_CHUNK_SIZE_MB + "=" + rangedDownloadChunkSizeMB);
+        // the ranged download is disabled with a size <= 0, and it is used only if the searched text can be searched in parts of the content,
+        // and if the matches lines are not recorded, as they are numbered from the start of the artifact
+        rangedArtifactSearch = rangedDownloadMinSizeMB <= 0 || !patternsSearch.searchesInWindows() || maxMatchesPerArtifact > 0 ? null
+                : new RangedArtifactSearch(rangedDownloadMinSizeMB, rangedDownloadChunkSizeMB, ioThreadPoolSize > 0 ? ioThreadPoolSize : Runtime.getRuntime().availableProcessors());
+        parallelSearchMinSizeMBString = getNonEmptyValue(PARALLEL_SEARCH_MIN_SIZE_MB, parallelSearchMinSizeMBString);
+        parallelSearchMinSizeMB = isEmpty(parallelSearchMinSizeMBString) ? ParallelFileSearch.DEFAULT_MIN_SIZE_MB : Long.parseLong(parallelSearchMinSizeMBString);
+        System.out.println("Parameter " + PARALLEL_SEARCH_MIN_SIZE_MB + "=" + parallelSearchMinSizeMB);
+        // the parallel search of the local files is disabled with a size <= 0, and like the ranged download it needs to search parts of the content
+        parallelFileSearch = parallelSearchMinSizeMB <= 0 || !patternsSearch.searchesInWindows() || maxMatchesPerArtifact > 0 ? null : new ParallelFileSearch(parallelSearchMinSizeMB, cpuThreadPoolSize);
         groupTestsFailuresString = getNonEmptyValue(GROUP_TESTS_FAILURES, groupTestsFailuresString);
         groupTestsFailures = isEmpty(groupTestsFailuresString) ? false : Boolean.valueOf(groupTestsFailuresString);
         System.out.println("Parameter ".concat(GROUP_TESTS_FAILURES).concat("=").concat(groupTestsFailures.toString()));
+        jUnitReportParser = getNonEmptyValue(JUNIT_REPORT_PARSER, jUnitReportParser);
+        jUnitReportParser = isEmpty(jUnitReportParser) ? JUnitReportParser.STAX_PARSER : jUnitReportParser;
+        Validate.isTrue(JUnitReportParser.STAX_PARSER.equals(jUnitReportParser) || JUnitReportParser.DOM_PARSER.equals(jUnitReportParser),
+                "The JUnit report parser should be " + JUnitReportParser.STAX_PARSER + " or " + JUnitReportParser.DOM_PARSER + ", not: " + jUnitReportParser);
+        System.out.println("Parameter " + JUNIT_REPORT_PARSER + "=" + jUnitReportParser);
         // the maximum difference threshold as a percentage of difference distance between 2 failures and the maximum possible distance for the shorter failure
         diffThresholdString = getNonEmptyValue(DIFF_THRESHOLD, diffThresholdString);
         diffThreshold = isEmpty(diffThresholdString) ? 10 : Double.valueOf(diffThresholdString);
@@ -219,6 +369,13 @@ public class ToolArgs implements Cloneable {
         backupRetentionString = getNonEmptyValue(BACKUP_RETENTION, backupRetentionString);
         backupRetention = isEmpty(backupRetentionString) ? 20 : Integer.parseInt(backupRetentionString);
         System.out.println("Parameter " + BACKUP_RETENTION + "=" + backupRetention);
+        httpCacheDir = getNonEmptyValue(HTTP_CACHE_DIR, httpCacheDir);
+        httpCacheDir = httpCacheDir == null ? "" : httpCacheDir;
+        System.out.println("Parameter " + HTTP_CACHE_DIR + "=" + httpCacheDir);
+        httpCacheMaxSizeMBString = getNonEmptyValue(HTTP_CACHE_MAX_SIZE_MB, httpCacheMaxSizeMBString);
+        httpCacheMaxSizeMB = isEmpty(httpCacheMaxSizeMBString) ? DiskResponseCache.DEFAULT_MAX_SIZE_MB : Long.parseLong(httpCacheMaxSizeMBString);
+        System.out.println("Parameter " + HTTP_CACHE_MAX_SIZE_MB + "=" + httpCacheMaxSizeMB);
+        diskResponseCache = httpCacheDir.isEmpty() ? null : new DiskResponseCache(new File(httpCacheDir), httpCacheMaxSizeMB);
         referenceBuildsString = getNonEmptyValue(REFERENCE_BUILDS, referenceBuildsString);
         referenceBuilds = parseBuilds(referenceBuildsString);
         System.out.println("Parameter " + REFERENCE_BUILDS + "=" + referenceBuilds);
@@ -293,21 +450,57 @@ public class ToolArgs implements Cloneable {
         newUrlPrefix2 = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(NEW_URL_PREFIX2));
         searchInJUnitReportsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(SEARCH_IN_JUNIT_REPORTS));
         threadPoolSizeString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(THREAD_POOL_SIZE));
+        ioThreadPoolSizeString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(IO_THREAD_POOL_SIZE));
+        cpuThreadPoolSizeString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(CPU_THREAD_POOL_SIZE));
+        parserQueueSizeString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(PARSER_QUEUE_SIZE));
+        httpMaxConnectionsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_MAX_CONNECTIONS));
+        httpMaxConnectionsPerRouteString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_MAX_CONNECTIONS_PER_ROUTE));
+        httpKeepAliveSecondsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_KEEP_ALIVE_SECONDS));
+        httpConnectTimeoutSecondsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_CONNECT_TIMEOUT_SECONDS));
+        httpSocketTimeoutSecondsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_SOCKET_TIMEOUT_SECONDS));
+        httpMaxRetriesString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_MAX_RETRIES));
         buildsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(BUILDS));
         lastBuildsCountString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(LAST_BUILDS_COUNT));
         buildsFromLastXHoursString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(BUILDS_FROM_LAST_X_HOURS));
         artifactsFilters = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(ARTIFACTS));
+        bulkArtifactsDownloadString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(BULK_ARTIFACTS_DOWNLOAD));
         buildParamsFilterString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(BUILD_PARAMS_FILTER));
         referenceBuildParamsFilterString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(REFERENCE_BUILD_PARAMS_FILTER));
         nodeUrlFilter = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(NODE_URL_FILTER));
-        searchedText = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(SEARCHED_TEXT));
+        // the searched text is a regular expression, or a list of named regular expressions
+        Object searchedTextValue = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(SEARCHED_TEXT));
+        if (searchedTextValue instanceof List) {
+            List<String> namedPatterns = new ArrayList<>();
+            for (Object namedPattern : (List<?>) searchedTextValue) {
+                Object name = namedPattern instanceof Map ? ((Map<?, ?>) namedPattern).get(NAME) : null;
+                Object value = namedPattern instanceof Map ? ((Map<?, ?>) namedPattern).get(VALUE) : null;
+                Validate.isTrue(name instanceof String && value instanceof String,
+                        "Each searched pattern of " + SEARCHED_TEXT + " should be an object with a " + NAME + " and a " + VALUE + " string, not: " + namedPattern);
+                namedPatterns.add(((String) name).concat(MultiPatternSearch.NAME_SEPARATOR).concat((String) value));
+            }
+            // ending with the separator, so a list with one named pattern is not read as an unnamed regular expression
+            searchedText = String.join(MultiPatternSearch.PATTERNS_SEPARATOR, namedPatterns).concat(MultiPatternSearch.PATTERNS_SEPARATOR);
+        } else {
+            searchedText = (String) searchedTextValue;
+        }
+        searchWindowSizeString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(SEARCH_WINDOW_SIZE));
+        searchMode = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(SEARCH_MODE));
+        rangedDownloadMinSizeMBString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(RANGED_DOWNLOAD_MIN_SIZE_MB));
+        parallelSearchMinSizeMBString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(PARALLEL_SEARCH_MIN_SIZE_MB));
+        maxMatchesPerArtifactString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(MAX_MATCHES_PER_ARTIFACT));
+        matchContextLinesString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(MATCH_CONTEXT_LINES));
+        regexTimeoutSecondsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(REGEX_TIMEOUT_SECONDS));
+        rangedDownloadChunkSizeMBString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(RANGED_DOWNLOAD_CHUNK_SIZE_MB));
         groupTestsFailuresString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(GROUP_TESTS_FAILURES));
+        jUnitReportParser = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(JUNIT_REPORT_PARSER));
         diffThresholdString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(DIFF_THRESHOLD));
         backupJobString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(BACKUP_JOB));
         useBackupString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(USE_BACKUP));
         removeBackupString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(REMOVE_BACKUP));
         backupPath = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(BACKUP_PATH));
         backupRetentionString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(BACKUP_RETENTION));
+        httpCacheDir = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_CACHE_DIR));
+        httpCacheMaxSizeMBString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(HTTP_CACHE_MAX_SIZE_MB));
         referenceBuildsString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(REFERENCE_BUILDS));
         lastReferenceBuildsCountString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(LAST_REFERENCE_BUILDS_COUNT));
         referenceBuildsFromLastXHoursString = JsonPath.using(conf).parse(configJson).read(PATH_PREFIX.concat(REFERENCE_BUILDS_FROM_LAST_X_HOURS));
@@ -408,7 +601,7 @@ public class ToolArgs implements Cloneable {
             // added pagination calls (which are limited to 50 maxResults) to be able to get all the jira issues.
             request.setURI(new URI(queryUrl.concat("&").concat("fields=description,labels").concat("&").concat("maxResults=50").concat("&").concat("nextPageToken=").concat(String.valueOf(nextPageToken))));
             HttpResponse response = Main.getUrlHttpResponse(request, jiraUsername, jiraPassword);
-            String pageResp = IOUtils.toString(response.getEntity().getContent());
+            String pageResp = EntityUtils.toString(response.getEntity());
             System.out.println("Jira call response code: " + response.getStatusLine().getStatusCode());
             if (response.getStatusLine().getStatusCode() != 200) {
                 System.out.println("Jira call response error: " + pageResp);
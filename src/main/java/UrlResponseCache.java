@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Jenkins API responses downloaded in the current run, keyed by the normalized URL and the user.
+ * The same build and node responses are requested when computing the builds and when submitting the nodes, and again
+ * for the reference builds if jobUrl2 is jobUrl, so each URL is downloaded only once.
+ * The concurrent requests for the same URL wait for the same download. The failed downloads are not kept, so they are retried.
+ * The responses are kept until they are more than MAX_CACHED_CHARS, then the oldest ones are removed.
+ */
+class UrlResponseCache {
+
+    interface Loader {
+        String load() throws IOException;
+    }
+
+    // 128 MB, the responses of the builds and nodes of a job are much smaller
+    static final long MAX_CACHED_CHARS = 64L * 1024 * 1024;
+
+    private static final ConcurrentMap<String, FutureTask<String>> responses = new ConcurrentHashMap<>();
+    // the keys of the downloaded responses, the oldest first, and the count of their chars
+    private static final Queue<String> downloadedKeys = new ConcurrentLinkedQueue<>();
+    private static final AtomicLong cachedChars = new AtomicLong();
+
+    /**
+     * @return the response for @urlString, from @loader if it was not downloaded before by @username
+     */
+    static String get(String urlString, String username, Loader loader) throws IOException {
+        String key = String.valueOf(username).concat(" ").concat(normalizeUrl(urlString));
+        FutureTask<String> response = responses.get(key);
+        if (response == null) {
+            FutureTask<String> newResponse = new FutureTask<>(loader::load);
+            response = responses.putIfAbsent(key, newResponse);
+            if (response == null) {
+                response = newResponse;
+                // the download runs in the current thread, the other threads requesting the same URL wait for it
+                response.run();
+                addDownloaded(key, response);
+            }
+        }
+        try {
+            return response.get();
+        } catch (ExecutionException e) {
+            responses.remove(key, response);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Exception when getting the response for URL " + urlString, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted when waiting for the response for URL " + urlString, e);
+        }
+    }
+
+    private static void addDownloaded(String key, FutureTask<String> response) {
+        String responseString = getDownloaded(response);
+        if (responseString == null) {
+            return;
+        }
+        downloadedKeys.add(key);
+        cachedChars.addAndGet(responseString.length());
+        String oldestKey;
+        while (cachedChars.get() > MAX_CACHED_CHARS && (oldestKey = downloadedKeys.poll()) != null) {
+            String removedResponse = getDownloaded(responses.remove(oldestKey));
+            if (removedResponse != null) {
+                cachedChars.addAndGet(-removedResponse.length());
+            }
+        }
+    }
+
+    /**
+     * @return the response of the finished download @response, or null if there isn't any or the download failed
+     */
+    private static String getDownloaded(FutureTask<String> response) {
+        if (response == null || !response.isDone()) {
+            return null;
+        }
+        try {
+            return response.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return @urlString with the scheme and the host in lower case, without the "." and ".." path segments and the repeated "/"
+     */
+    static String normalizeUrl(String urlString) {
+        URI uri = URI.create(urlString).normalize();
+        if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+            return uri.toString();
+        }
+        StringBuilder url = new StringBuilder(urlString.length());
+        url.append(uri.getScheme().toLowerCase(Locale.ENGLISH)).append("://").append(uri.getRawAuthority().toLowerCase(Locale.ENGLISH));
+        if (uri.getRawPath() != null) {
+            url.append(uri.getRawPath().replaceAll("/{2,}", "/"));
+        }
+        if (uri.getRawQuery() != null) {
+            url.append('?').append(uri.getRawQuery());
+        }
+        return url.toString();
+    }
+}